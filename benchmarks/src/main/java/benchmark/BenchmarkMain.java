@@ -0,0 +1,45 @@
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of benchmarks.jar: takes the usual JMH options, but unless {@code -rf} or {@code -rff}
+ * is given, writes the results as JSON to {@code benchmark-results/jmh-<timestamp>.json},
+ * one file per run, to compare runs over time.
+ */
+public final class BenchmarkMain {
+
+    private static final Path RESULTS_DIRECTORY = Path.of("benchmark-results");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+            Files.createDirectories(RESULTS_DIRECTORY);
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            builder.result(RESULTS_DIRECTORY.resolve("jmh-" + timestamp + ".json").toString());
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import analysis.AdvancedErrorClassifier;
+import analysis.ErrorClassifier;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.GamePhase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification of moves that reach the tactical pattern scan (hanging piece, fork, pin), with the
+ * bitboard detection versus the former clone-and-scan one. Run with {@code -prof gc} to compare
+ * the allocation rate per classified move.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassifierBenchmark {
+
+    @Param({"200"})
+    public int games;
+
+    private List<RawMoveEvaluation> moves;
+    private int next;
+    private final ErrorClassifier bitboards = new AdvancedErrorClassifier();
+    private final ErrorClassifier legacy = new LegacyErrorClassifier();
+
+    @Setup
+    public void createCorpus() {
+        moves = GameCorpus.randomEvaluations(games, 42).stream()
+                .map(ClassifierBenchmark::tacticalCandidate)
+                .toList();
+    }
+
+    /**
+     * A quiet mistake with even material in the middlegame: none of the cheap rules decide it, so
+     * the classifier has to look for tactical patterns on the board.
+     */
+    private static RawMoveEvaluation tacticalCandidate(RawMoveEvaluation move) {
+        return new RawMoveEvaluation(move.gameId(), move.playerColor(), move.moveNumber(), move.uciMove(),
+                move.sanMove(), 0, 0, 0, move.bestMoveUci(), false, Math.max(4, move.legalMovesCount()), 0, 0,
+                move.fenBefore(), move.fenAfter(), move.positionKeyBefore(), move.positionKeyAfter(), 150, 150, GamePhase.MIDDLEGAME, move.sideToMoveAfter(),
+                false, false, false, false, false, null, null);
+    }
+
+    // one move per invocation, so that time and gc.alloc.rate.norm are per classified move
+    @Benchmark
+    public GameError bitboardClassifier() {
+        return bitboards.classify(nextMove());
+    }
+
+    @Benchmark
+    public GameError legacyClassifier() {
+        return legacy.classify(nextMove());
+    }
+
+    private RawMoveEvaluation nextMove() {
+        RawMoveEvaluation move = moves.get(next);
+        next = next + 1 == moves.size() ? 0 : next + 1;
+        return move;
+    }
+}
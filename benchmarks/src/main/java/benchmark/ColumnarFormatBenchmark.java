@@ -0,0 +1,164 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.RawMoveEvaluation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import store.ColumnarEvaluationWriter;
+import store.ColumnarEvaluations;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-move evaluations stored three ways: the columnar binary format, NDJSON and Java
+ * serialization. Measures writing them and summing the cpLoss of every move; the encoded sizes
+ * are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarFormatBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"2000"})
+    public int games;
+
+    private List<RawMoveEvaluation> evaluations;
+    private Path columnarFile;
+    private ColumnarEvaluations columnar;
+    private byte[] json;
+    private byte[] serialized;
+
+    @Setup
+    public void encode() throws IOException {
+        evaluations = GameCorpus.randomEvaluations(games, 42);
+
+        columnarFile = Files.createTempFile("evaluations-", ".bin");
+        writeColumnar(false).write(columnarFile);
+        columnar = ColumnarEvaluations.open(columnarFile);
+
+        Path withFens = Files.createTempFile("evaluations-fens-", ".bin");
+        writeColumnar(true).write(withFens);
+
+        json = writeJson();
+        serialized = writeSerialized();
+
+        System.out.printf("%n%d moves: columnar %d bytes, columnar with FENs %d bytes, NDJSON %d bytes, "
+                        + "Java serialization %d bytes%n", evaluations.size(), Files.size(columnarFile),
+                Files.size(withFens), json.length, serialized.length);
+        Files.delete(withFens);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        columnar.close();
+        Files.deleteIfExists(columnarFile);
+    }
+
+    /* ==========================
+       ENCODING
+       ========================== */
+
+    @Benchmark
+    public ColumnarEvaluationWriter encodeColumnar() {
+        return writeColumnar(false);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return writeJson();
+    }
+
+    @Benchmark
+    public byte[] encodeJavaSerialization() throws IOException {
+        return writeSerialized();
+    }
+
+    /* ==========================
+       CP LOSS SCAN
+       ========================== */
+
+    @Benchmark
+    public long scanColumnar() {
+        IntBuffer cpLoss = columnar.cpLossColumn();
+        long sum = 0;
+        while (cpLoss.hasRemaining()) {
+            sum += cpLoss.get();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long scanJson() throws IOException {
+        long sum = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sum += (long) MAPPER.readValue(line, RawMoveEvaluation.class).cpLoss();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public long scanJavaSerialization() throws Exception {
+        long sum = 0;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            for (RawMoveEvaluation evaluation : (List<RawMoveEvaluation>) in.readObject()) {
+                sum += (long) evaluation.cpLoss();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void materializeColumnar(Blackhole blackhole) {
+        for (int row = 0; row < columnar.size(); row++) {
+            blackhole.consume(columnar.evaluation(row));
+        }
+    }
+
+    private ColumnarEvaluationWriter writeColumnar(boolean withFens) {
+        ColumnarEvaluationWriter writer = new ColumnarEvaluationWriter(withFens);
+        for (RawMoveEvaluation evaluation : evaluations) {
+            writer.add(evaluation, null);
+        }
+        return writer;
+    }
+
+    private byte[] writeJson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RawMoveEvaluation evaluation : evaluations) {
+            out.write(MAPPER.writeValueAsBytes(evaluation));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] writeSerialized() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(out)) {
+            objects.writeObject(new ArrayList<>(evaluations));
+        }
+        return out.toByteArray();
+    }
+}
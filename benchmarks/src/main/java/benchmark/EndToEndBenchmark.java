@@ -0,0 +1,131 @@
+package benchmark;
+
+import analysis.AdvancedErrorClassifier;
+import analysis.AnalysisPipeline;
+import analysis.EngineConfig;
+import analysis.EnginePool;
+import analysis.EvaluationCache;
+import analysis.PositionTable;
+import analysis.SearchFilter;
+import analysis.SearchLimit;
+import analysis.StockfishClient;
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.LichessGame;
+import fetch.LichessOpeningExplorer;
+import fetch.OpeningBook;
+import org.openjdk.jmh.annotations.*;
+import parser.PGNParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A batch of games through the whole analysis pipeline (decode, engine, classification), with
+ * {@link FakeUciEngine} processes in place of Stockfish. Each of the search savings the app uses
+ * can be turned on:
+ * <ul>
+ *     <li>{@code cache}: the evaluation cache file, filled by a batch run during setup, so that
+ *     every measured batch is a rerun over games already analyzed;</li>
+ *     <li>{@code filters}: the forced and book rules, with an opening book holding the first
+ *     {@value #BOOK_PLIES} plies of every game;</li>
+ *     <li>{@code sharedTable}: one position table for the engines, emptied before each batch as
+ *     the app starts each run with a new one.</li>
+ * </ul>
+ * With all of them off, every invocation searches every position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final int BOOK_PLIES = 8;
+
+    @Param({"50"})
+    public int games;
+
+    @Param({"2"})
+    public int engines;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    @Param({"false", "true"})
+    public boolean filters;
+
+    @Param({"false", "true"})
+    public boolean sharedTable;
+
+    private List<LichessGame> corpus;
+    private Path directory;
+    private EvaluationCache evaluationCache;
+    private PositionTable positionTable;
+    private EnginePool enginePool;
+    private ExecutorService ioExecutor;
+
+    @Setup
+    public void startEngines() throws IOException, InterruptedException {
+        corpus = PGNParser.parseNdjson(GameCorpus.randomNdjson(games, 42));
+        directory = Files.createTempDirectory("chess-analysis-end-to-end-");
+
+        OpeningBook openingBook = OpeningBook.empty();
+        SearchFilter searchFilter = SearchFilter.disabled();
+        if (filters) {
+            Files.writeString(directory.resolve("openings.tsv"), GameCorpus.openingBookTsv(games, 42, BOOK_PLIES));
+            openingBook = OpeningBook.load(directory);
+            searchFilter = new SearchFilter(EnumSet.of(SearchFilter.Rule.FORCED, SearchFilter.Rule.BOOK), 1_000);
+        }
+        evaluationCache = cache ? EvaluationCache.open(directory.resolve("evaluations.cache")) : null;
+        positionTable = sharedTable ? new PositionTable() : null;
+
+        EngineConfig engineConfig = new EngineConfig(FakeUciEngine.launcher(), 1, 16, 1, SearchLimit.depth(12));
+        LichessOpeningExplorer openingExplorer = new LichessOpeningExplorer(openingBook, false);
+        SearchFilter engineFilter = searchFilter;
+        enginePool = new EnginePool(engines,
+                () -> new StockfishClient(engineConfig, openingExplorer, evaluationCache, engineFilter, positionTable));
+        ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        if (cache) {
+            analyzeBatch();
+        }
+    }
+
+    @TearDown
+    public void stopEngines() throws IOException {
+        enginePool.close();
+        ioExecutor.shutdown();
+        if (evaluationCache != null) {
+            evaluationCache.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<AnalysisResult> analyzeBatch() throws InterruptedException {
+        if (positionTable != null) {
+            positionTable.clear();
+        }
+        AnalysisPipeline pipeline = new AnalysisPipeline(enginePool, new AdvancedErrorClassifier(),
+                SearchLimit.depth(12), game -> Side.WHITE, AnalysisPipeline.Config.defaults(), ioExecutor);
+
+        List<AnalysisResult> results = new ArrayList<>(games);
+        pipeline.run(corpus.stream(), results::add);
+        return results;
+    }
+}
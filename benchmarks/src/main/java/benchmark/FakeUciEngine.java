@@ -0,0 +1,100 @@
+package benchmark;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.move.Move;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Deterministic stand-in for Stockfish, run as its own process. Every search answers at once with
+ * the requested depth, a score derived from the position and its first legal move, so end-to-end
+ * runs measure the analyzer and the UCI round trips, not the engine.
+ */
+public final class FakeUciEngine {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private FakeUciEngine() {
+    }
+
+    /**
+     * Writes a launcher script starting the fake engine with the classpath of the current JVM and
+     * returns its path, to be used as the engine command: the UCI client takes a single executable.
+     */
+    public static String launcher() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+        boolean windows = System.getProperty("os.name").startsWith("Windows");
+
+        Path script = Files.createTempFile("fake-uci-engine-", windows ? ".cmd" : ".sh");
+        if (windows) {
+            Files.writeString(script, "@\"" + java + "\" -cp \"" + classPath + "\" " + FakeUciEngine.class.getName() + "\r\n");
+        } else {
+            Files.writeString(script, "#!/bin/sh\nexec '" + java + "' -cp '" + classPath + "' " + FakeUciEngine.class.getName() + "\n");
+            script.toFile().setExecutable(true);
+        }
+        script.toFile().deleteOnExit();
+        return script.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        Board board = new Board();
+        String fen = START_FEN;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split(" ");
+            switch (tokens[0]) {
+                case "uci" -> out.println("id name FakeUciEngine\nuciok");
+                case "isready" -> out.println("readyok");
+                case "position" -> fen = position(line, board);
+                case "go" -> {
+                    int depth = 1;
+                    for (int i = 1; i < tokens.length - 1; i++) {
+                        if (tokens[i].equals("depth")) depth = Integer.parseInt(tokens[i + 1]);
+                    }
+                    List<Move> legalMoves = board.legalMoves();
+                    if (legalMoves.isEmpty()) {
+                        out.println("info depth 0 score " + (board.isKingAttacked() ? "mate 0" : "cp 0"));
+                        out.println("bestmove (none)");
+                    } else {
+                        String best = legalMoves.getFirst().toString();
+                        int score = Math.floorMod(fen.hashCode(), 401) - 200;
+                        out.println("info depth " + depth + " multipv 1 score cp " + score + " nodes 1 pv " + best);
+                        out.println("bestmove " + best);
+                    }
+                }
+                case "quit" -> {
+                    out.flush();
+                    return;
+                }
+                default -> { }
+            }
+            out.flush();
+        }
+    }
+
+    private static String position(String command, Board board) {
+        int fenStart = command.indexOf("fen ");
+        int movesStart = command.indexOf(" moves ");
+        String fen = fenStart < 0 ? START_FEN
+                : command.substring(fenStart + 4, movesStart < 0 ? command.length() : movesStart).trim();
+        board.loadFromFen(fen);
+        if (movesStart >= 0) {
+            for (String move : command.substring(movesStart + 7).trim().split(" ")) {
+                board.doMove(new Move(move, board.getSideToMove()));
+            }
+            fen = board.getFen();
+        }
+        return fen;
+    }
+}
@@ -0,0 +1,268 @@
+package benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.Piece;
+import com.github.bhlangonijr.chesslib.PieceType;
+import com.github.bhlangonijr.chesslib.Side;
+import com.github.bhlangonijr.chesslib.move.Move;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+import parser.PositionKeys;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic corpus of random legal games, written as lichess-style PGN (tags, clock comments)
+ * or as per-move evaluations.
+ */
+public final class GameCorpus {
+
+    private static final int MAX_PLIES = 120;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private GameCorpus() {
+    }
+
+    public static List<String> randomPgns(int games, long seed) {
+        Random random = new Random(seed);
+        List<String> pgns = new ArrayList<>(games);
+        for (int i = 0; i < games; i++) {
+            pgns.add(randomPgn(random, "game" + i));
+        }
+        return pgns;
+    }
+
+    /**
+     * The games as the lichess export API streams them with {@code pgnInJson=true}: one JSON object
+     * per line, with the fields the parser skips as well as the ones it reads.
+     */
+    public static String randomNdjson(int games, long seed) {
+        List<String> pgns = randomPgns(games, seed);
+        StringBuilder ndjson = new StringBuilder(games * 3072);
+        for (int i = 0; i < pgns.size(); i++) {
+            Map<String, Object> game = object(
+                    "id", "game" + i,
+                    "rated", true,
+                    "variant", "standard",
+                    "speed", "blitz",
+                    "perf", "blitz",
+                    "createdAt", 1_700_000_000_000L + i * 600_000L,
+                    "lastMoveAt", 1_700_000_000_000L + i * 600_000L + 480_000L,
+                    "status", "resign",
+                    "players", object(
+                            "white", object("user", object("name", "white", "id", "white"), "rating", 1500 + i % 300, "ratingDiff", 6),
+                            "black", object("user", object("name", "black", "id", "black"), "rating", 1500 - i % 300, "ratingDiff", -6)),
+                    "winner", i % 2 == 0 ? "white" : "black",
+                    "opening", object("eco", "A00", "name", "Random Opening", "ply", 2),
+                    "pgn", pgns.get(i),
+                    "clock", object("initial", 180, "increment", 2, "totalTime", 260));
+            try {
+                ndjson.append(MAPPER.writeValueAsString(game)).append('\n');
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return ndjson.toString();
+    }
+
+    /**
+     * An opening book file, in the format of the lichess chess-openings TSV files, with the first
+     * {@code plies} moves of every game of {@link #randomPgns} as a line of theory.
+     */
+    public static String openingBookTsv(int games, long seed, int plies) {
+        StringBuilder tsv = new StringBuilder("eco\tname\tpgn\n");
+        List<String> pgns = randomPgns(games, seed);
+        for (int i = 0; i < pgns.size(); i++) {
+            String movetext = pgns.get(i).substring(pgns.get(i).indexOf("\n\n") + 2).replaceAll("\\{[^}]*}", " ");
+            List<String> moves = new ArrayList<>(plies);
+            for (String token : movetext.trim().split("\\s+")) {
+                if (moves.size() == plies) break;
+                if (!token.endsWith(".") && !token.equals("*")) moves.add(token);
+            }
+            tsv.append("A00\tRandom Opening ").append(i).append('\t').append(String.join(" ", moves)).append('\n');
+        }
+        return tsv.toString();
+    }
+
+    // keeps the fields in order, so that every run parses the same bytes
+    private static Map<String, Object> object(Object... fieldsAndValues) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            object.put((String) fieldsAndValues[i], fieldsAndValues[i + 1]);
+        }
+        return object;
+    }
+
+    private static String randomPgn(Random random, String gameId) {
+        StringBuilder pgn = new StringBuilder(2048);
+        pgn.append("[Event \"Rated blitz game\"]\n");
+        pgn.append("[Site \"https://lichess.org/").append(gameId).append("\"]\n");
+        pgn.append("[White \"white\"]\n[Black \"black\"]\n[Result \"*\"]\n\n");
+
+        Board board = new Board();
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            List<Move> legalMoves = board.legalMoves();
+            if (legalMoves.isEmpty()) break;
+
+            Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+            if (ply % 2 == 0) {
+                pgn.append(ply / 2 + 1).append(". ");
+            } else {
+                pgn.append(ply / 2 + 1).append("... ");
+            }
+            pgn.append(toSan(board, move, legalMoves));
+            pgn.append(" { [%clk 0:02:").append(10 + random.nextInt(50)).append("] } ");
+            board.doMove(move);
+        }
+
+        pgn.append("*\n");
+        return pgn.toString();
+    }
+
+    /**
+     * Evaluations of the white moves of random legal games, with real positions and moves and
+     * made-up engine values: most moves lose a few centipawns, a few lose a lot.
+     */
+    public static List<RawMoveEvaluation> randomEvaluations(int games, long seed) {
+        Random random = new Random(seed);
+        List<RawMoveEvaluation> evaluations = new ArrayList<>(games * MAX_PLIES / 2);
+
+        for (int i = 0; i < games; i++) {
+            String gameId = "game" + i;
+            Board board = new Board();
+            int eval = 0;
+
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                List<Move> legalMoves = board.legalMoves();
+                if (legalMoves.isEmpty()) break;
+
+                Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+                if (board.getSideToMove() != Side.WHITE) {
+                    board.doMove(move);
+                    continue;
+                }
+
+                String san = toSan(board, move, legalMoves);
+                String fenBefore = board.getFen();
+                long keyBefore = PositionKeys.key(board);
+                int moveNumber = board.getMoveCounter();
+                board.doMove(move);
+
+                int cpLoss = random.nextInt(10) == 0 ? random.nextInt(600) : random.nextInt(40);
+                int evalAfter = eval - cpLoss;
+                GamePhase phase = ply < 16 ? GamePhase.OPENING : ply < 80 ? GamePhase.MIDDLEGAME : GamePhase.ENDGAME;
+
+                evaluations.add(new RawMoveEvaluation(gameId, Side.WHITE, moveNumber, move.toString(), san,
+                        eval, evalAfter, eval, legalMoves.getFirst().toString(), legalMoves.size() == 1,
+                        legalMoves.size(), 0, 0, fenBefore, board.getFen(), keyBefore, PositionKeys.key(board), cpLoss, cpLoss, phase, Side.BLACK,
+                        san.contains("x"), san.endsWith("+"), san.contains("="), false, ply < 8,
+                        ply < 8 ? "Random Opening" : null, ply < 8 ? "A00" : null));
+
+                eval = evalAfter + random.nextInt(61) - 30;
+            }
+        }
+        return evaluations;
+    }
+
+    /**
+     * Errors on the moves of random games, with severities and categories drawn at random; cycles
+     * over the moves when the games are too short for the requested count.
+     */
+    public static List<GameError> randomErrors(int count, long seed) {
+        Random random = new Random(seed);
+        List<RawMoveEvaluation> moves = randomEvaluations(count / (MAX_PLIES / 2) + 1, seed);
+        ErrorSeverity[] severities = ErrorSeverity.values();
+        ErrorCategory[] categories = ErrorCategory.values();
+
+        List<GameError> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            errors.add(GameError.from(moves.get(i % moves.size()),
+                    severities[random.nextInt(severities.length)], categories[random.nextInt(categories.length)]));
+        }
+        return errors;
+    }
+
+    static String toSan(Board board, Move move, List<Move> legalMoves) {
+        int from = move.getFrom().ordinal();
+        int to = move.getTo().ordinal();
+        PieceType type = board.getPiece(move.getFrom()).getPieceType();
+
+        StringBuilder san = new StringBuilder(8);
+
+        if (type == PieceType.KING && Math.abs(to - from) == 2) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == PieceType.PAWN) {
+            if ((from & 7) != (to & 7)) {
+                san.append(file(from)).append('x');
+            }
+            san.append(square(to));
+            if (move.getPromotion() != null && move.getPromotion() != Piece.NONE) {
+                san.append('=').append(letter(move.getPromotion().getPieceType()));
+            }
+        } else {
+            san.append(letter(type));
+
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            for (Move other : legalMoves) {
+                int otherFrom = other.getFrom().ordinal();
+                if (otherFrom == from || other.getTo().ordinal() != to) continue;
+                if (board.getPiece(other.getFrom()).getPieceType() != type) continue;
+                ambiguous = true;
+                sameFile |= (otherFrom & 7) == (from & 7);
+                sameRank |= (otherFrom >>> 3) == (from >>> 3);
+            }
+            if (ambiguous) {
+                if (!sameFile) san.append(file(from));
+                else if (!sameRank) san.append(rank(from));
+                else san.append(file(from)).append(rank(from));
+            }
+
+            if (board.getPiece(move.getTo()) != Piece.NONE) {
+                san.append('x');
+            }
+            san.append(square(to));
+        }
+
+        board.doMove(move);
+        if (board.isKingAttacked()) {
+            san.append(board.legalMoves().isEmpty() ? '#' : '+');
+        }
+        board.undoMove();
+
+        return san.toString();
+    }
+
+    private static char letter(PieceType type) {
+        return switch (type) {
+            case KNIGHT -> 'N';
+            case BISHOP -> 'B';
+            case ROOK -> 'R';
+            case QUEEN -> 'Q';
+            case KING -> 'K';
+            default -> throw new IllegalArgumentException("No SAN letter for " + type);
+        };
+    }
+
+    private static char file(int square) {
+        return (char) ('a' + (square & 7));
+    }
+
+    private static char rank(int square) {
+        return (char) ('1' + (square >>> 3));
+    }
+
+    private static String square(int square) {
+        return "" + file(square) + rank(square);
+    }
+}
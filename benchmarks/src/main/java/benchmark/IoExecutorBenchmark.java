@@ -0,0 +1,92 @@
+package benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import fetch.IoExecutors;
+import fetch.LichessOpeningExplorer;
+import fetch.OpeningBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remote opening lookups against a local explorer stub that answers after a simulated network
+ * latency: virtual-thread-per-task executor versus the fixed platform thread pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IoExecutorBenchmark {
+
+    private static final int LOOKUPS = 256;
+    private static final byte[] OPENING_JSON =
+            "{\"opening\":{\"eco\":\"C20\",\"name\":\"King's Pawn Game\"},\"white\":1,\"draws\":1,\"black\":1}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"true", "false"})
+    public boolean virtualThreads;
+
+    @Param({"50"})
+    public int latencyMillis;
+
+    private HttpServer explorerStub;
+    private ExecutorService stubExecutor;
+    private ExecutorService ioExecutor;
+    private LichessOpeningExplorer explorer;
+    private final AtomicLong positions = new AtomicLong();
+
+    @Setup
+    public void startExplorerStub() throws IOException {
+        stubExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        explorerStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        explorerStub.createContext("/masters", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, OPENING_JSON.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(OPENING_JSON);
+            }
+        });
+        explorerStub.setExecutor(stubExecutor);
+        explorerStub.start();
+
+        ioExecutor = IoExecutors.create(virtualThreads);
+        String url = "http://localhost:" + explorerStub.getAddress().getPort() + "/masters";
+        explorer = new LichessOpeningExplorer(OpeningBook.empty(), true, url,
+                HttpClient.newHttpClient(), Duration.ZERO, 16, ioExecutor);
+    }
+
+    @TearDown
+    public void stopExplorerStub() {
+        explorerStub.stop(0);
+        ioExecutor.shutdownNow();
+        stubExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void remoteLookups() {
+        CompletableFuture<?>[] lookups = new CompletableFuture<?>[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // a distinct en passant field per lookup keeps the explorer cache out of the measurement
+            String fen = "8/8/8/8/8/8/8/8 w - " + positions.incrementAndGet() + " 0 1";
+            lookups[i] = explorer.getOpeningFromFenAsync(fen);
+        }
+        CompletableFuture.allOf(lookups).join();
+    }
+}
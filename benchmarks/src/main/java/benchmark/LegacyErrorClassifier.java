@@ -0,0 +1,180 @@
+package benchmark;
+
+import analysis.ErrorClassifier;
+import com.github.bhlangonijr.chesslib.*;
+import com.github.bhlangonijr.chesslib.move.Move;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+
+import java.util.List;
+
+/**
+ * AdvancedErrorClassifier as it was before tactical detection moved to bitboards: board clones per
+ * legal move, 64-square scans and a list allocated per attack test. Kept as the benchmark baseline.
+ */
+public class LegacyErrorClassifier implements ErrorClassifier {
+
+    private static final double INACCURACY_THRESHOLD = 50;
+    private static final double MISTAKE_THRESHOLD = 100;
+    private static final double BLUNDER_THRESHOLD = 300;
+
+    @Override
+    public GameError classify(RawMoveEvaluation eval) {
+
+        double cpLoss = eval.cpLoss();
+
+        if (cpLoss < INACCURACY_THRESHOLD) {
+            return null;
+        }
+
+        ErrorSeverity severity = classifySeverity(cpLoss);
+        ErrorCategory category = classifyCategory(eval, severity);
+        return GameError.from(eval, severity, category);
+    }
+
+    private ErrorSeverity classifySeverity(double cpLoss) {
+        if (cpLoss < MISTAKE_THRESHOLD) return ErrorSeverity.INACCURACY;
+        if (cpLoss < BLUNDER_THRESHOLD) return ErrorSeverity.MISTAKE;
+        return ErrorSeverity.BLUNDER;
+    }
+
+    private ErrorCategory classifyCategory(RawMoveEvaluation eval, ErrorSeverity severity) {
+
+        if (eval.phase() == GamePhase.OPENING &&
+                eval.inOpeningTheory() &&
+                eval.moveNumber() <= 12) {
+            return ErrorCategory.OPENING_KNOWLEDGE;
+        }
+
+        if (isTacticalError(eval)) {
+            return ErrorCategory.TACTICAL;
+        }
+
+        if (eval.phase() == GamePhase.ENDGAME &&
+                Math.abs(eval.materialBalance()) <= 500) {
+            return ErrorCategory.ENDGAME_TECHNIQUE;
+        }
+
+        if (severity != ErrorSeverity.INACCURACY) {
+            if (Math.abs(eval.materialBalance()) < 300) {
+                return ErrorCategory.STRATEGIC;
+            }
+            return ErrorCategory.POSITIONAL;
+        }
+
+        return ErrorCategory.POSITIONAL;
+    }
+
+    /* =======================
+       TACTICAL ANALYSIS
+       ======================= */
+
+    private boolean isTacticalError(RawMoveEvaluation eval) {
+
+        if (eval.cpLoss() < 100) return false;
+
+        if (eval.capture() || eval.check() || eval.promotion()) {
+            return true;
+        }
+
+        if (Math.abs(eval.evalBefore() - eval.evalAfter()) >= 150 &&
+                Math.abs(eval.materialBalance()) >= 200) {
+            return true;
+        }
+
+        return hasTacticalPattern(eval);
+    }
+
+    private boolean hasTacticalPattern(RawMoveEvaluation eval) {
+
+        Board board = new Board();
+        board.loadFromFen(eval.fenAfter());
+
+        Side attacker = board.getSideToMove();
+        Side victim = attacker.flip();
+
+        return hasHangingPiece(board, victim) ||
+                hasFork(board, attacker) ||
+                hasStrongPin(board, attacker) ||
+                isPositionCollapsed(eval);
+    }
+
+    private boolean hasHangingPiece(Board board, Side victim) {
+
+        for (Square sq : Square.values()) {
+            Piece piece = board.getPiece(sq);
+            if (piece == Piece.NONE || piece.getPieceSide() != victim) continue;
+
+            int attackers = Long.bitCount(board.squareAttackedBy(sq, board.getSideToMove()));
+            int defenders = Long.bitCount(board.squareAttackedBy(sq, victim));
+
+            if (attackers > defenders && materialValue(piece.getPieceType())  >= 300) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasFork(Board board, Side attacker) {
+
+        for (Move move : board.legalMoves()) {
+            Board copy = board.clone();
+            copy.doMove(move);
+
+            int valuableTargets = 0;
+
+            for (Square sq : Square.values()) {
+                Piece p = copy.getPiece(sq);
+                if (p == Piece.NONE) continue;
+                if (p.getPieceSide() == attacker) continue;
+                if (p.getPieceType() == PieceType.KING) continue;
+
+                int value = materialValue(p.getPieceType());
+                if (value >= 500 &&
+                        copy.isSquareAttackedBy(List.of(sq), attacker)) {
+                    valuableTargets++;
+                }
+            }
+
+            if (valuableTargets >= 2) return true;
+        }
+        return false;
+    }
+
+
+    private boolean hasStrongPin(Board board, Side attacker) {
+
+        for (Square sq : Square.values()) {
+            Piece p = board.getPiece(sq);
+            if (p == Piece.NONE) continue;
+            if (p.getPieceSide() != attacker.flip()) continue;
+
+            int value = materialValue(p.getPieceType());
+            if (value < 300) continue;
+
+            if (board.isSquareAttackedBy(List.of(sq), attacker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private boolean isPositionCollapsed(RawMoveEvaluation eval) {
+        return eval.legalMovesCount() <= 3 && eval.cpLoss() >= 150;
+    }
+
+    private static int materialValue(PieceType type) {
+        return switch (type) {
+            case PAWN -> 100;
+            case KNIGHT, BISHOP -> 300;
+            case ROOK -> 500;
+            case QUEEN -> 900;
+            default -> 0;
+        };
+    }
+
+}
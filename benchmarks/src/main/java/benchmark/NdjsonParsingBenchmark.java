@@ -0,0 +1,48 @@
+package benchmark;
+
+import domain.LichessGame;
+import org.openjdk.jmh.annotations.*;
+import parser.PGNParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing of a lichess game export: the whole body as a string, and streamed from bytes the way
+ * the fetcher reads the HTTP response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NdjsonParsingBenchmark {
+
+    @Param({"1000"})
+    public int games;
+
+    private String ndjson;
+    private byte[] bytes;
+
+    @Setup
+    public void createExport() {
+        ndjson = GameCorpus.randomNdjson(games, 42);
+        bytes = ndjson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<LichessGame> parseString() {
+        return PGNParser.parseNdjson(ndjson);
+    }
+
+    @Benchmark
+    public long streamBytes() {
+        try (Stream<LichessGame> stream = PGNParser.streamNdjson(new ByteArrayInputStream(bytes))) {
+            return stream.count();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import com.github.bhlangonijr.chesslib.move.Move;
+import com.github.bhlangonijr.chesslib.pgn.PgnHolder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import parser.PGNParser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PGN to move list conversion over a corpus of games: in-memory parser versus the former
+ * temp file + chesslib PgnHolder round-trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PgnParsingBenchmark {
+
+    @Param({"1000"})
+    public int games;
+
+    private List<String> pgns;
+
+    @Setup
+    public void createCorpus() {
+        pgns = GameCorpus.randomPgns(games, 42);
+    }
+
+    @Benchmark
+    public void inMemoryMoveCodes(Blackhole blackhole) {
+        for (String pgn : pgns) {
+            blackhole.consume(PGNParser.parseMovetext(pgn));
+        }
+    }
+
+    @Benchmark
+    public void inMemoryUciMoves(Blackhole blackhole) {
+        for (String pgn : pgns) {
+            blackhole.consume(PGNParser.convertPgnToUciMoves(pgn));
+        }
+    }
+
+    @Benchmark
+    public void tempFilePgnHolder(Blackhole blackhole) throws Exception {
+        for (String pgn : pgns) {
+            blackhole.consume(tempFileUciMoves(pgn));
+        }
+    }
+
+    /**
+     * The conversion used before the in-memory parser.
+     */
+    static List<String> tempFileUciMoves(String pgn) throws Exception {
+        Path tempPgn = Files.createTempFile("lichess-game-", ".pgn");
+        Files.writeString(tempPgn, pgn, StandardCharsets.UTF_8);
+
+        PgnHolder holder = new PgnHolder(tempPgn.toString());
+        holder.loadPgn();
+
+        var game = holder.getGames().getFirst();
+        List<String> uciMoves = new ArrayList<>();
+        for (Move move : game.getHalfMoves()) {
+            uciMoves.add(move.toString());
+        }
+
+        Files.deleteIfExists(tempPgn);
+        return uciMoves;
+    }
+}
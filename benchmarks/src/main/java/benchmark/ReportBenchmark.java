@@ -0,0 +1,51 @@
+package benchmark;
+
+import app.GameErrorReportGenerator;
+import domain.GameError;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * HTML report generation, from the list of errors to the report and its error pages on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"10000"})
+    public int errors;
+
+    private List<GameError> corpus;
+    private Path directory;
+
+    @Setup
+    public void createCorpus() throws IOException {
+        corpus = GameCorpus.randomErrors(errors, 42);
+        directory = Files.createTempDirectory("chess-analysis-report-");
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Path writeReport() throws IOException {
+        return new GameErrorReportGenerator(corpus).writeHtmlReport(directory.resolve("report.html"));
+    }
+}
@@ -0,0 +1,58 @@
+package analysis;
+
+import domain.RawMoveEvaluation;
+
+import java.util.List;
+
+/**
+ * Two-tier search: every ply is first searched with the cheap triage limit, and only the suspect
+ * plies are searched again with the full limit. Most moves lose far less than the inaccuracy
+ * threshold and never need the deep search.
+ *
+ * @param triageLimit    limit of the first pass, or {@code null} to search every ply at the full limit
+ * @param fullLimit      limit of the re-search, and of the only pass in single-tier mode
+ * @param suspectCpLoss  triage cpLoss from which a ply is searched again
+ * @param suspectSwingCp eval change over the opponent's previous move from which a ply is searched again
+ */
+public record AdaptiveSearch(SearchLimit triageLimit, SearchLimit fullLimit, double suspectCpLoss, double suspectSwingCp) {
+
+    // a bit below the 50cp inaccuracy threshold: shallow searches misjudge borderline moves both ways
+    private static final double DEFAULT_SUSPECT_CP_LOSS = 30;
+    private static final double DEFAULT_SUSPECT_SWING_CP = 150;
+
+    /**
+     * Evaluations of one game for both tiers. In single-tier mode both lists are the same.
+     *
+     * @param researched number of plies searched again with the full limit
+     */
+    public record Evaluations(List<RawMoveEvaluation> triage, List<RawMoveEvaluation> full, int researched) {
+    }
+
+    public static AdaptiveSearch singleTier(SearchLimit limit) {
+        return new AdaptiveSearch(null, limit, 0, 0);
+    }
+
+    public static AdaptiveSearch twoTier(SearchLimit triageLimit, SearchLimit fullLimit) {
+        return new AdaptiveSearch(triageLimit, fullLimit, DEFAULT_SUSPECT_CP_LOSS, DEFAULT_SUSPECT_SWING_CP);
+    }
+
+    public boolean isTwoTier() {
+        return triageLimit != null;
+    }
+
+    /**
+     * @param previous triage evaluation of the player's previous move, or {@code null} on the first one
+     */
+    public boolean isSuspect(RawMoveEvaluation triage, RawMoveEvaluation previous) {
+        if (triage.cpLoss() >= suspectCpLoss) {
+            return true;
+        }
+        // a sharp swing after the opponent's reply means the shallow search missed something
+        return previous != null && Math.abs(triage.evalBefore() - previous.evalAfter()) >= suspectSwingCp;
+    }
+
+    @Override
+    public String toString() {
+        return isTwoTier() ? "triage " + triageLimit + ", full " + fullLimit : fullLimit.toString();
+    }
+}
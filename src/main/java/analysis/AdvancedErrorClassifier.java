@@ -8,8 +8,6 @@ import domain.enums.ErrorCategory;
 import domain.enums.ErrorSeverity;
 import domain.enums.GamePhase;
 
-import java.util.List;
-
 
 public class AdvancedErrorClassifier implements ErrorClassifier {
 
@@ -100,14 +98,16 @@ public class AdvancedErrorClassifier implements ErrorClassifier {
 
     private boolean hasHangingPiece(Board board, Side victim) {
 
-        for (Square sq : Square.values()) {
-            Piece piece = board.getPiece(sq);
-            if (piece == Piece.NONE || piece.getPieceSide() != victim) continue;
+        Side attacker = board.getSideToMove();
+        long pieces = minorAndMajorPieces(board, victim);
+
+        for (; pieces != 0; pieces &= pieces - 1) {
+            int sq = Long.numberOfTrailingZeros(pieces);
 
-            int attackers = Long.bitCount(board.squareAttackedBy(sq, board.getSideToMove()));
-            int defenders = Long.bitCount(board.squareAttackedBy(sq, victim));
+            int attackers = Long.bitCount(BoardAttacks.attackersTo(board, sq, attacker));
+            int defenders = Long.bitCount(BoardAttacks.attackersTo(board, sq, victim));
 
-            if (attackers > defenders && materialValue(piece.getPieceType())  >= 300) {
+            if (attackers > defenders) {
                 return true;
             }
         }
@@ -116,24 +116,16 @@ public class AdvancedErrorClassifier implements ErrorClassifier {
 
     private boolean hasFork(Board board, Side attacker) {
 
+        Side victim = attacker.flip();
+
         for (Move move : board.legalMoves()) {
-            Board copy = board.clone();
-            copy.doMove(move);
-
-            int valuableTargets = 0;
-
-            for (Square sq : Square.values()) {
-                Piece p = copy.getPiece(sq);
-                if (p == Piece.NONE) continue;
-                if (p.getPieceSide() == attacker) continue;
-                if (p.getPieceType() == PieceType.KING) continue;
-
-                int value = materialValue(p.getPieceType());
-                if (value >= 500 &&
-                        copy.isSquareAttackedBy(List.of(sq), attacker)) {
-                    valuableTargets++;
-                }
-            }
+            board.doMove(move);
+
+            // rooks and queens: pieces worth 500 or more, kings excluded
+            long valuable = board.getBitboard(BoardAttacks.rook(victim)) | board.getBitboard(BoardAttacks.queen(victim));
+            int valuableTargets = Long.bitCount(valuable & BoardAttacks.attackedBy(board, attacker));
+
+            board.undoMove();
 
             if (valuableTargets >= 2) return true;
         }
@@ -143,19 +135,15 @@ public class AdvancedErrorClassifier implements ErrorClassifier {
 
     private boolean hasStrongPin(Board board, Side attacker) {
 
-        for (Square sq : Square.values()) {
-            Piece p = board.getPiece(sq);
-            if (p == Piece.NONE) continue;
-            if (p.getPieceSide() != attacker.flip()) continue;
-
-            int value = materialValue(p.getPieceType());
-            if (value < 300) continue;
+        return (minorAndMajorPieces(board, attacker.flip()) & BoardAttacks.attackedBy(board, attacker)) != 0;
+    }
 
-            if (board.isSquareAttackedBy(List.of(sq), attacker)) {
-                return true;
-            }
-        }
-        return false;
+    // pieces worth 300 or more
+    private static long minorAndMajorPieces(Board board, Side side) {
+        return board.getBitboard(BoardAttacks.knight(side))
+                | board.getBitboard(BoardAttacks.bishop(side))
+                | board.getBitboard(BoardAttacks.rook(side))
+                | board.getBitboard(BoardAttacks.queen(side));
     }
 
 
@@ -163,14 +151,4 @@ public class AdvancedErrorClassifier implements ErrorClassifier {
         return eval.legalMovesCount() <= 3 && eval.cpLoss() >= 150;
     }
 
-    private static int materialValue(PieceType type) {
-        return switch (type) {
-            case PAWN -> 100;
-            case KNIGHT, BISHOP -> 300;
-            case ROOK -> 500;
-            case QUEEN -> 900;
-            default -> 0;
-        };
-    }
-
 }
@@ -0,0 +1,388 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.GameError;
+import domain.LichessGame;
+import domain.RawMoveEvaluation;
+import parser.PGNParser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Staged analysis over bounded queues: fetch -> PGN decode -> engine evaluation -> classification -> aggregation.
+ * Every stage has its own worker count; a full queue blocks the stage feeding it, so a slow stage
+ * throttles the ones upstream instead of buffering games in memory. There is one engine worker per
+ * pooled engine, and decoding and classification never run on engine threads: each move is handed
+ * to the classification threads as soon as the engine has evaluated it, so a game is mostly
+ * classified by the time its last move is searched, and the classify stage collects the errors
+ * in move order.
+ */
+public class AnalysisPipeline {
+
+    /**
+     * @param classifyWorkers threads classifying moves while the engines search
+     */
+    public record Config(int decodeWorkers, int classifyWorkers, int queueCapacity) {
+
+        public static Config defaults() {
+            return new Config(1, Math.max(1, Runtime.getRuntime().availableProcessors() / 4), 16);
+        }
+    }
+
+    public record StageStats(String stage, int workers, long processed, long failed, long busyMillis, int queued) {
+    }
+
+    private record DecodedGame(LichessGame game, Side playerSide, List<String> moves) {
+    }
+
+    // one classification per move, in move order; the same list for both tiers of a single-tier search
+    private record EvaluatedGame(LichessGame game, AdaptiveSearch.Evaluations evaluations,
+                                 List<CompletableFuture<GameError>> errors, List<CompletableFuture<GameError>> triageErrors) {
+    }
+
+    private final EnginePool enginePool;
+    private final ErrorClassifier errorClassifier;
+    private final AdaptiveSearch search;
+    private final Function<LichessGame, Side> playerSideResolver;
+    private final Config config;
+    private final Executor ioExecutor;
+    private final LiveErrorAggregates aggregates;
+
+    private final List<Stage<?, ?>> stages = new ArrayList<>();
+    private ExecutorService classifyExecutor;
+    private BiConsumer<String, String> rejected;
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private final LongAdder evaluatedPlies = new LongAdder();
+    private final LongAdder researchedPlies = new LongAdder();
+
+    /**
+     * @param playerSideResolver side to analyze in a game, or {@code null} to skip the game
+     * @param ioExecutor         runs the fetch stage, which mostly waits on the network
+     */
+    public AnalysisPipeline(EnginePool enginePool, ErrorClassifier errorClassifier, SearchLimit searchLimit,
+                            Function<LichessGame, Side> playerSideResolver, Config config, Executor ioExecutor) {
+        this(enginePool, errorClassifier, AdaptiveSearch.singleTier(searchLimit), playerSideResolver, config, ioExecutor);
+    }
+
+    public AnalysisPipeline(EnginePool enginePool, ErrorClassifier errorClassifier, AdaptiveSearch search,
+                            Function<LichessGame, Side> playerSideResolver, Config config, Executor ioExecutor) {
+        this(enginePool, errorClassifier, search, playerSideResolver, config, ioExecutor, null);
+    }
+
+    /**
+     * @param aggregates updated by the classification workers as soon as each game is classified,
+     *                   before its result reaches the sink; {@code null} for none
+     */
+    public AnalysisPipeline(EnginePool enginePool, ErrorClassifier errorClassifier, AdaptiveSearch search,
+                            Function<LichessGame, Side> playerSideResolver, Config config, Executor ioExecutor,
+                            LiveErrorAggregates aggregates) {
+        this.enginePool = enginePool;
+        this.errorClassifier = errorClassifier;
+        this.search = search;
+        this.playerSideResolver = playerSideResolver;
+        this.config = config;
+        this.ioExecutor = ioExecutor;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Runs every game of the source through the pipeline and blocks until the last result has
+     * been handed to the sink. The sink is always called from a single thread.
+     *
+     * @throws RuntimeException the source failed before its last game; what the source threw, once
+     *                          the games fetched before the failure have gone through the pipeline
+     */
+    public void run(Stream<LichessGame> games, Consumer<AnalysisResult> sink) throws InterruptedException {
+        run(games, sink, (gameId, reason) -> {
+        });
+    }
+
+    /**
+     * @param rejected told the id of every game that no later run can analyze either and why: not
+     *                 played by the user, or movetext that does not decode; called from the decode
+     *                 threads. A game failing later, on an engine or the network, is only logged, so
+     *                 that it is fetched again next time.
+     */
+    public void run(Stream<LichessGame> games, Consumer<AnalysisResult> sink, BiConsumer<String, String> rejected)
+            throws InterruptedException {
+        this.rejected = rejected;
+        stages.clear();
+        fetched.reset();
+        fetchNanos.reset();
+        evaluatedPlies.reset();
+        researchedPlies.reset();
+
+        Stage<LichessGame, DecodedGame> decode = new Stage<>("decode", config.decodeWorkers(), config.queueCapacity(),
+                this::decode, LichessGame::gameId);
+        Stage<DecodedGame, EvaluatedGame> evaluate = new Stage<>("engine", enginePool.size(), config.queueCapacity(),
+                this::evaluate, decoded -> decoded.game().gameId());
+        // only waits for the classifications the engine workers started
+        Stage<EvaluatedGame, AnalysisResult> classify = new Stage<>("classify", 1, config.queueCapacity(),
+                this::classify, evaluated -> evaluated.game().gameId());
+        Stage<AnalysisResult, AnalysisResult> aggregate = new Stage<>("aggregate", 1, config.queueCapacity(), result -> {
+            sink.accept(result);
+            return null;
+        }, AnalysisResult::gameId);
+
+        decode.connect(evaluate);
+        evaluate.connect(classify);
+        classify.connect(aggregate);
+        stages.addAll(List.of(decode, evaluate, classify, aggregate));
+
+        classifyExecutor = Executors.newFixedThreadPool(Math.max(1, config.classifyWorkers()),
+                Thread.ofPlatform().name("pipeline-classifier-", 1).factory());
+        try {
+            CompletableFuture<Void> fetching = CompletableFuture.runAsync(() -> fetch(games, decode), ioExecutor);
+
+            List<Thread> threads = new ArrayList<>();
+            for (Stage<?, ?> stage : stages) {
+                threads.addAll(stage.startWorkers());
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            try {
+                fetching.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        } finally {
+            classifyExecutor.shutdown();
+        }
+    }
+
+    public List<StageStats> stageStats() {
+        List<StageStats> stats = new ArrayList<>();
+        stats.add(new StageStats("fetch", 1, fetched.sum(), 0, fetchNanos.sum() / 1_000_000, 0));
+        stages.stream().map(Stage::stats).forEach(stats::add);
+        return stats;
+    }
+
+    /**
+     * Plies searched so far, and how many of them were searched again at the full limit.
+     */
+    public long evaluatedPlies() {
+        return evaluatedPlies.sum();
+    }
+
+    public long researchedPlies() {
+        return researchedPlies.sum();
+    }
+
+    private void fetch(Stream<LichessGame> games, Stage<LichessGame, ?> decode) {
+        try {
+            Iterator<LichessGame> source = games.iterator();
+            while (true) {
+                // time spent waiting on the source, the network for a lichess download
+                long start = System.nanoTime();
+                boolean more = source.hasNext();
+                LichessGame game = more ? source.next() : null;
+                fetchNanos.add(System.nanoTime() - start);
+                if (!more) break;
+
+                fetched.increment();
+                decode.submit(game);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the stages drain what was fetched either way; run() rethrows a failure of the source
+            try {
+                decode.finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /* ==========================
+       STAGE FUNCTIONS
+       ========================== */
+
+    private DecodedGame decode(LichessGame game) {
+        Side side = playerSideResolver.apply(game);
+        if (side == null) {
+            System.out.println("Skipping game " + game.gameId() + ": user not found");
+            rejected.accept(game.gameId(), "user not found");
+            return null;
+        }
+        try {
+            return new DecodedGame(game, side, PGNParser.convertPgnToUciMoves(game.pgn()));
+        } catch (IllegalArgumentException e) {
+            // the same movetext fails the same way every time, a chess960 castling for one
+            System.err.println("Skipping game " + game.gameId() + ": " + e.getMessage());
+            rejected.accept(game.gameId(), "decode: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private EvaluatedGame evaluate(DecodedGame decoded) throws Exception {
+        List<CompletableFuture<GameError>> errors = new ArrayList<>();
+        List<CompletableFuture<GameError>> triageErrors = search.isTwoTier() ? new ArrayList<>() : errors;
+        List<RawMoveEvaluation> triaged = new ArrayList<>();
+
+        AdaptiveSearch.Evaluations evaluations = enginePool.withEngine(engine -> engine.analyzeMoves(
+                decoded.game().gameId(), decoded.moves(), search, decoded.playerSide(),
+                evaluation -> {
+                    triaged.add(evaluation);
+                    triageErrors.add(classifyAsync(evaluation));
+                },
+                evaluation -> {
+                    // a move the full tier did not search again keeps its triage classification
+                    int move = errors.size();
+                    boolean unchanged = move < triaged.size() && triaged.get(move) == evaluation;
+                    errors.add(unchanged ? triageErrors.get(move) : classifyAsync(evaluation));
+                }));
+
+        evaluatedPlies.add(evaluations.full().size());
+        researchedPlies.add(evaluations.researched());
+        return new EvaluatedGame(decoded.game(), evaluations, errors, triageErrors);
+    }
+
+    private CompletableFuture<GameError> classifyAsync(RawMoveEvaluation evaluation) {
+        return CompletableFuture.supplyAsync(() -> errorClassifier.classify(evaluation), classifyExecutor);
+    }
+
+    private AnalysisResult classify(EvaluatedGame evaluated) {
+        List<GameError> errors = join(evaluated.errors());
+        List<GameError> triageErrors = evaluated.triageErrors() == evaluated.errors() ? errors : join(evaluated.triageErrors());
+        AnalysisResult result = new AnalysisResult(evaluated.game().gameId(), evaluated.evaluations().full(),
+                errors, triageErrors);
+        if (aggregates != null) {
+            aggregates.record(result);
+        }
+        return result;
+    }
+
+    // joined in move order, so the errors do not depend on which classification finished first
+    private static List<GameError> join(List<CompletableFuture<GameError>> classifications) {
+        return classifications.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /* ==========================
+       STAGE
+       ========================== */
+
+    @FunctionalInterface
+    private interface StageFunction<I, O> {
+        O apply(I input) throws Exception;
+    }
+
+    private static final class Stage<I, O> {
+
+        // marks the end of the input; each worker puts it back for its siblings before exiting
+        private static final Object END = new Object();
+
+        private final String name;
+        private final int workers;
+        private final BlockingQueue<Object> input;
+        private final StageFunction<I, O> function;
+        private final Function<I, String> gameId;
+        private Stage<O, ?> next;
+
+        private final AtomicInteger runningWorkers = new AtomicInteger();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        Stage(String name, int workers, int capacity, StageFunction<I, O> function, Function<I, String> gameId) {
+            this.name = name;
+            this.workers = Math.max(1, workers);
+            this.input = new ArrayBlockingQueue<>(capacity);
+            this.function = function;
+            this.gameId = gameId;
+        }
+
+        void connect(Stage<O, ?> next) {
+            this.next = next;
+        }
+
+        void submit(I item) throws InterruptedException {
+            input.put(item);
+        }
+
+        void finish() throws InterruptedException {
+            input.put(END);
+        }
+
+        List<Thread> startWorkers() {
+            runningWorkers.set(workers);
+            List<Thread> threads = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(this::work, "pipeline-" + name + "-" + (i + 1));
+                thread.start();
+                threads.add(thread);
+            }
+            return threads;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void work() {
+            try {
+                while (true) {
+                    Object item = input.take();
+                    if (item == END) {
+                        input.put(END);
+                        break;
+                    }
+
+                    long start = System.nanoTime();
+                    O output = null;
+                    try {
+                        output = function.apply((I) item);
+                        processed.increment();
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        failed.increment();
+                        System.err.println("Stage " + name + " failed on game " + gameId.apply((I) item) + ": " + e);
+                    } finally {
+                        busyNanos.add(System.nanoTime() - start);
+                    }
+
+                    if (output != null && next != null) {
+                        next.submit(output);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (runningWorkers.decrementAndGet() == 0 && next != null) {
+                    try {
+                        next.finish();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        StageStats stats() {
+            int queued = input.size() - (input.contains(END) ? 1 : 0);
+            return new StageStats(name, workers, processed.sum(), failed.sum(),
+                    busyNanos.sum() / 1_000_000, queued);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.Piece;
+import com.github.bhlangonijr.chesslib.Side;
+
+/**
+ * Allocation-free attack sets over chesslib bitboards (bit 0 = a1, bit 63 = h8). Leaper attacks
+ * come from precomputed tables, slider attacks are walked ray by ray against the occupancy.
+ */
+final class BoardAttacks {
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    // [side][square]: squares attacked by a pawn of that side standing on the square
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] BISHOP_RAYS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] ROOK_RAYS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, KNIGHT_STEPS);
+            KING[square] = steps(square, KING_STEPS);
+            PAWN[Side.WHITE.ordinal()][square] = steps(square, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[Side.BLACK.ordinal()][square] = steps(square, new int[][]{{-1, -1}, {1, -1}});
+        }
+    }
+
+    private BoardAttacks() {
+    }
+
+    private static long steps(int square, int[][] steps) {
+        long targets = 0;
+        for (int[] step : steps) {
+            int file = (square & 7) + step[0];
+            int rank = (square >>> 3) + step[1];
+            if (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                targets |= 1L << (rank * 8 + file);
+            }
+        }
+        return targets;
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return rays(square, occupied, BISHOP_RAYS);
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return rays(square, occupied, ROOK_RAYS);
+    }
+
+    private static long rays(int square, long occupied, int[][] rays) {
+        long attacks = 0;
+        for (int[] ray : rays) {
+            int file = square & 7;
+            int rank = square >>> 3;
+            while (true) {
+                file += ray[0];
+                rank += ray[1];
+                if (file < 0 || file > 7 || rank < 0 || rank > 7) break;
+                long target = 1L << (rank * 8 + file);
+                attacks |= target;
+                if ((occupied & target) != 0) break;
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Pieces of {@code side} attacking the square, the same set as chesslib's {@code Board.squareAttackedBy}.
+     */
+    static long attackersTo(Board board, int square, Side side) {
+        int s = side.ordinal();
+        long occupied = board.getBitboard();
+        long diagonal = board.getBitboard(bishop(side)) | board.getBitboard(queen(side));
+        long straight = board.getBitboard(rook(side)) | board.getBitboard(queen(side));
+
+        // a pawn of the side attacks the square if a pawn of the other side there would attack it back
+        return (PAWN[1 - s][square] & board.getBitboard(pawn(side)))
+                | (KNIGHT[square] & board.getBitboard(knight(side)))
+                | (KING[square] & board.getBitboard(king(side)))
+                | (bishopAttacks(square, occupied) & diagonal)
+                | (rookAttacks(square, occupied) & straight);
+    }
+
+    /**
+     * Every square attacked by at least one piece of {@code side}, in one pass over its pieces.
+     */
+    static long attackedBy(Board board, Side side) {
+        long occupied = board.getBitboard();
+        long attacks = 0;
+
+        long pawns = board.getBitboard(pawn(side));
+        for (; pawns != 0; pawns &= pawns - 1) {
+            attacks |= PAWN[side.ordinal()][Long.numberOfTrailingZeros(pawns)];
+        }
+        long knights = board.getBitboard(knight(side));
+        for (; knights != 0; knights &= knights - 1) {
+            attacks |= KNIGHT[Long.numberOfTrailingZeros(knights)];
+        }
+        long diagonal = board.getBitboard(bishop(side)) | board.getBitboard(queen(side));
+        for (; diagonal != 0; diagonal &= diagonal - 1) {
+            attacks |= bishopAttacks(Long.numberOfTrailingZeros(diagonal), occupied);
+        }
+        long straight = board.getBitboard(rook(side)) | board.getBitboard(queen(side));
+        for (; straight != 0; straight &= straight - 1) {
+            attacks |= rookAttacks(Long.numberOfTrailingZeros(straight), occupied);
+        }
+        long king = board.getBitboard(king(side));
+        if (king != 0) {
+            attacks |= KING[Long.numberOfTrailingZeros(king)];
+        }
+        return attacks;
+    }
+
+    /* ==========================
+       PIECES BY SIDE
+       ========================== */
+
+    static Piece pawn(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_PAWN : Piece.BLACK_PAWN;
+    }
+
+    static Piece knight(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_KNIGHT : Piece.BLACK_KNIGHT;
+    }
+
+    static Piece bishop(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_BISHOP : Piece.BLACK_BISHOP;
+    }
+
+    static Piece rook(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_ROOK : Piece.BLACK_ROOK;
+    }
+
+    static Piece queen(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_QUEEN : Piece.BLACK_QUEEN;
+    }
+
+    static Piece king(Side side) {
+        return side == Side.WHITE ? Piece.WHITE_KING : Piece.BLACK_KING;
+    }
+}
@@ -0,0 +1,29 @@
+package analysis;
+
+/**
+ * UCI process settings and search limit used by every engine of a pool. Under a fixed CPU budget
+ * the useful knob is engines x threads per engine: more engines analyze more games at once, more
+ * threads per engine finish each search sooner.
+ *
+ * @param command  command line starting the engine
+ * @param threads  value of the UCI {@code Threads} option
+ * @param hashMb   value of the UCI {@code Hash} option, in MB
+ * @param multiPv  value of the UCI {@code MultiPV} option; only the first line is used for scoring
+ */
+public record EngineConfig(String command, int threads, int hashMb, int multiPv, SearchLimit searchLimit) {
+
+    public EngineConfig {
+        if (threads < 1 || hashMb < 1 || multiPv < 1) {
+            throw new IllegalArgumentException("Invalid engine config: threads=" + threads
+                    + " hash=" + hashMb + " multiPv=" + multiPv);
+        }
+    }
+
+    public static EngineConfig defaults() {
+        return new EngineConfig("stockfish", 1, 16, 1, SearchLimit.depth(17));
+    }
+
+    public EngineConfig withSearchLimit(SearchLimit searchLimit) {
+        return new EngineConfig(command, threads, hashMb, multiPv, searchLimit);
+    }
+}
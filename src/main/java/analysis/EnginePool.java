@@ -0,0 +1,167 @@
+package analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of warm Stockfish processes leased to analysis tasks. Engines are started once,
+ * checked before every lease and restarted if their process stopped answering. Closing the pool
+ * stops every engine, leased or not, and fails the callers waiting for one.
+ */
+public class EnginePool implements AutoCloseable {
+
+    private final List<StockfishClient> engines;
+    private final Deque<StockfishClient> idleEngines;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition engineReleased = lock.newCondition();
+    private boolean closed;
+
+    public EnginePool(int size, Supplier<StockfishClient> engineFactory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Engine pool size must be positive: " + size);
+        }
+        this.engines = new ArrayList<>(size);
+        this.idleEngines = new ArrayDeque<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                StockfishClient engine = engineFactory.get();
+                // tracked before starting, so that a half-started process is stopped as well
+                engines.add(engine);
+                engine.start();
+                idleEngines.add(engine);
+            }
+        } catch (RuntimeException e) {
+            // no pool to close: stop the processes started so far before giving up
+            stopAll(e);
+            throw e;
+        }
+    }
+
+    public static EnginePool sizedToAvailableCores(Supplier<StockfishClient> engineFactory) {
+        return new EnginePool(defaultSize(1), engineFactory);
+    }
+
+    public static EnginePool sizedToAvailableCores(EngineConfig engineConfig, Supplier<StockfishClient> engineFactory) {
+        return new EnginePool(defaultSize(engineConfig.threads()), engineFactory);
+    }
+
+    public static int defaultSize(int threadsPerEngine) {
+        // leave one core for fetching, parsing and classification
+        return Math.max(1, (Runtime.getRuntime().availableProcessors() - 1) / threadsPerEngine);
+    }
+
+    public int size() {
+        return engines.size();
+    }
+
+    /**
+     * Waits for an idle engine; fails with {@link IllegalStateException} if the pool is closed,
+     * before or while waiting.
+     */
+    public StockfishClient acquire() throws InterruptedException {
+        StockfishClient engine;
+        lock.lockInterruptibly();
+        try {
+            while (!closed && idleEngines.isEmpty()) {
+                engineReleased.await();
+            }
+            if (closed) {
+                throw new IllegalStateException("Engine pool is closed");
+            }
+            engine = idleEngines.poll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            ensureHealthy(engine);
+        } catch (RuntimeException e) {
+            release(engine);
+            throw e;
+        }
+        return engine;
+    }
+
+    public void release(StockfishClient engine) {
+        lock.lock();
+        try {
+            // once closed the engine has been stopped already
+            if (!closed) {
+                idleEngines.add(engine);
+                engineReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withEngine(EngineTask<T> task) throws Exception {
+        StockfishClient engine = acquire();
+        try {
+            return task.run(engine);
+        } finally {
+            release(engine);
+        }
+    }
+
+    private void ensureHealthy(StockfishClient engine) {
+        if (engine.isHealthy()) {
+            return;
+        }
+
+        System.err.println("Stockfish engine not responding, restarting it");
+        engine.stop();
+        engine.start();
+
+        if (!engine.isHealthy()) {
+            throw new IllegalStateException("Stockfish engine could not be restarted");
+        }
+    }
+
+    /**
+     * Stops every engine, including the ones leased at the moment, whose tasks then fail. Callers
+     * waiting in {@link #acquire()} are woken up and fail too.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idleEngines.clear();
+            engineReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        RuntimeException failure = new IllegalStateException("Could not stop every Stockfish engine");
+        stopAll(failure);
+        if (failure.getSuppressed().length > 0) {
+            throw failure;
+        }
+    }
+
+    // keeps going when an engine fails to stop, the failures are added to the given exception
+    private void stopAll(RuntimeException failure) {
+        for (StockfishClient engine : engines) {
+            try {
+                engine.stop();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EngineTask<T> {
+        T run(StockfishClient engine) throws Exception;
+    }
+}
@@ -0,0 +1,232 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.GameError;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Error counts and centipawn loss sums for every severity x category x phase x color, filled in
+ * one pass over the errors into arrays indexed by the enum ordinals. Every statistic of the report
+ * is a sum over these cells. Not thread-safe: each thread, or each run, fills its own and
+ * {@link #merge} combines them.
+ */
+public class ErrorAggregates {
+
+    /**
+     * One non-empty cell, as {@link #cells()} lists them to be stored and {@link #of(List, long, long)}
+     * reads them back.
+     */
+    public record Cell(ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color, long count,
+                       double cpLossSum) {
+    }
+
+    private static final int SEVERITIES = ErrorSeverity.values().length;
+    private static final int CATEGORIES = ErrorCategory.values().length;
+    private static final int PHASES = GamePhase.values().length;
+    private static final int COLORS = 2;
+    private static final int CELLS = SEVERITIES * CATEGORIES * PHASES * COLORS;
+
+    private final long[] counts = new long[CELLS];
+    private final double[] cpLossSums = new double[CELLS];
+    private long gamesWithErrors;
+    private long analyzedGames;
+
+    /**
+     * The errors of any number of games, in any order; {@link #gameCount()} is the number of
+     * distinct game ids among them.
+     */
+    public static ErrorAggregates of(Iterable<GameError> errors) {
+        ErrorAggregates aggregates = new ErrorAggregates();
+        Set<String> gameIds = new HashSet<>();
+        for (GameError error : errors) {
+            aggregates.add(error);
+            gameIds.add(error.gameId());
+        }
+        aggregates.gamesWithErrors = gameIds.size();
+        return aggregates;
+    }
+
+    /**
+     * Aggregates as stored from {@link #cells()}, {@link #gameCount()} and {@link #analyzedGames()}.
+     */
+    public static ErrorAggregates of(List<Cell> cells, long gamesWithErrors, long analyzedGames) {
+        ErrorAggregates aggregates = new ErrorAggregates();
+        for (Cell cell : cells) {
+            int index = cell(cell.severity(), cell.category(), cell.phase(), cell.color());
+            aggregates.counts[index] += cell.count();
+            aggregates.cpLossSums[index] += cell.cpLossSum();
+        }
+        aggregates.gamesWithErrors = gamesWithErrors;
+        aggregates.analyzedGames = analyzedGames;
+        return aggregates;
+    }
+
+    private static int cell(ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color) {
+        return ((severity.ordinal() * CATEGORIES + category.ordinal()) * PHASES + phase.ordinal()) * COLORS
+                + (color == Side.BLACK ? 1 : 0);
+    }
+
+    public void add(GameError error) {
+        int cell = cell(error.severity(), error.category(), error.phase(), error.playerColor());
+        counts[cell]++;
+        cpLossSums[cell] += error.centipawnLoss();
+    }
+
+    public void addAll(Iterable<GameError> errors) {
+        for (GameError error : errors) {
+            add(error);
+        }
+    }
+
+    /**
+     * Adds the errors of an analyzed game, and the game itself to {@link #analyzedGames()} and,
+     * if it has errors, to {@link #gameCount()}.
+     */
+    public void add(AnalysisResult result) {
+        addAll(result.errors());
+        if (!result.errors().isEmpty()) gamesWithErrors++;
+        analyzedGames++;
+    }
+
+    /**
+     * Adds the errors counted by {@code other} to these ones; {@code other} is left unchanged.
+     */
+    public ErrorAggregates merge(ErrorAggregates other) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            counts[cell] += other.counts[cell];
+            cpLossSums[cell] += other.cpLossSums[cell];
+        }
+        gamesWithErrors += other.gamesWithErrors;
+        analyzedGames += other.analyzedGames;
+        return this;
+    }
+
+    /**
+     * The cells with at least one error, whatever the size of the history they sum up.
+     */
+    public List<Cell> cells() {
+        List<Cell> cells = new ArrayList<>();
+        for (ErrorSeverity severity : ErrorSeverity.values()) {
+            for (ErrorCategory category : ErrorCategory.values()) {
+                for (GamePhase phase : GamePhase.values()) {
+                    for (Side color : new Side[]{Side.WHITE, Side.BLACK}) {
+                        int cell = cell(severity, category, phase, color);
+                        if (counts[cell] > 0) {
+                            cells.add(new Cell(severity, category, phase, color, counts[cell], cpLossSums[cell]));
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /* ==========================
+       COUNTS
+       ========================== */
+
+    public long count() {
+        long count = 0;
+        for (long cellCount : counts) {
+            count += cellCount;
+        }
+        return count;
+    }
+
+    public long count(ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color) {
+        return counts[cell(severity, category, phase, color)];
+    }
+
+    public long count(ErrorSeverity severity) {
+        return sum(counts, severity, null, null, null);
+    }
+
+    public long count(ErrorCategory category) {
+        return sum(counts, null, category, null, null);
+    }
+
+    public long count(GamePhase phase) {
+        return sum(counts, null, null, phase, null);
+    }
+
+    public long count(Side color) {
+        return sum(counts, null, null, null, color);
+    }
+
+    /**
+     * Games with at least one error. Errors added one by one with {@link #add(GameError)} or
+     * {@link #addAll} do not count here: only {@link #of} and {@link #add(AnalysisResult)} know
+     * which game they belong to, and results of different aggregates are assumed to be of
+     * different games when merged.
+     */
+    public long gameCount() {
+        return gamesWithErrors;
+    }
+
+    /**
+     * Games added as a whole with {@link #add(AnalysisResult)}, with or without errors.
+     */
+    public long analyzedGames() {
+        return analyzedGames;
+    }
+
+    /* ==========================
+       CENTIPAWN LOSS
+       ========================== */
+
+    public double averageCpLoss() {
+        double sum = 0;
+        for (double cellSum : cpLossSums) {
+            sum += cellSum;
+        }
+        return average(sum, count());
+    }
+
+    public double averageCpLoss(ErrorSeverity severity) {
+        return average(sum(cpLossSums, severity, null, null, null), count(severity));
+    }
+
+    public double averageCpLoss(Side color) {
+        return average(sum(cpLossSums, null, null, null, color), count(color));
+    }
+
+    private static double average(double sum, long count) {
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    // null matches every value of a dimension
+    private static long sum(long[] values, ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color) {
+        long sum = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (matches(cell, severity, category, phase, color)) sum += values[cell];
+        }
+        return sum;
+    }
+
+    private static double sum(double[] values, ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color) {
+        double sum = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (matches(cell, severity, category, phase, color)) sum += values[cell];
+        }
+        return sum;
+    }
+
+    private static boolean matches(int cell, ErrorSeverity severity, ErrorCategory category, GamePhase phase, Side color) {
+        int colorIndex = cell % COLORS;
+        int phaseIndex = cell / COLORS % PHASES;
+        int categoryIndex = cell / (COLORS * PHASES) % CATEGORIES;
+        int severityIndex = cell / (COLORS * PHASES * CATEGORIES);
+        return (severity == null || severity.ordinal() == severityIndex)
+                && (category == null || category.ordinal() == categoryIndex)
+                && (phase == null || phase.ordinal() == phaseIndex)
+                && (color == null || (color == Side.BLACK ? 1 : 0) == colorIndex);
+    }
+}
@@ -3,7 +3,14 @@ package analysis;
 import domain.GameError;
 import domain.RawMoveEvaluation;
 
+/**
+ * Implementations must be stateless and thread-safe: one instance is shared by every game and
+ * called concurrently, each move as soon as its evaluation is available, in no particular order.
+ */
 public interface ErrorClassifier {
 
+    /**
+     * @return the error made by the move, or {@code null} when the move is not an error
+     */
     GameError classify(RawMoveEvaluation evaluation);
 }
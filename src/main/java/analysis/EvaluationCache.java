@@ -0,0 +1,175 @@
+package analysis;
+
+import domain.PositionEval;
+import parser.MoveCodec;
+import parser.PositionKeys;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent position evaluation cache, stored as a memory-mapped open-addressing hash table.
+ * Positions are identified by their 64-bit position key; an entry searched at a greater
+ * depth also answers requests for a shallower one. When a bucket is full the shallowest entry
+ * is replaced, like an engine transposition table.
+ */
+public class EvaluationCache implements AutoCloseable {
+
+    public static final int DEFAULT_SLOTS = 1 << 20;
+
+    private static final int MAGIC = 0x4C474543; // "LGEC"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+
+    /* slot layout: key (8) | score (4) | move (2) | depth (1) | flags (1) */
+    private static final int SLOT_SIZE = 16;
+    private static final int BUCKET_SLOTS = 4;
+    private static final int SCORE_OFFSET = 8;
+    private static final int MOVE_OFFSET = 12;
+    private static final int DEPTH_OFFSET = 14;
+    private static final int FLAGS_OFFSET = 15;
+    private static final byte FLAG_FORCED_MATE = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final int slotMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private EvaluationCache(FileChannel channel, MappedByteBuffer table, int slots) {
+        this.channel = channel;
+        this.table = table;
+        this.slotMask = slots - 1;
+    }
+
+    public static EvaluationCache open(Path file) throws IOException {
+        return open(file, DEFAULT_SLOTS);
+    }
+
+    public static EvaluationCache open(Path file, int slots) throws IOException {
+        if (slots < BUCKET_SLOTS || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two >= " + BUCKET_SLOTS + ": " + slots);
+        }
+
+        long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            boolean compatible = channel.size() == size && hasHeader(channel, slots);
+            if (!compatible) {
+                // different layout or a fresh file: start from an empty table
+                channel.truncate(0);
+            }
+
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!compatible) {
+                table.putInt(0, MAGIC);
+                table.putInt(4, VERSION);
+                table.putInt(8, slots);
+            }
+            return new EvaluationCache(channel, table, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean hasHeader(FileChannel channel, int slots) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(8) == slots;
+    }
+
+    /**
+     * @param key position key, see {@link PositionKeys}
+     */
+    public synchronized Optional<PositionEval> get(long key, int depth) {
+        int bucket = bucketStart(key);
+
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            int offset = slotOffset(bucket + i);
+            if (table.getLong(offset) == key && table.get(offset + DEPTH_OFFSET) >= depth) {
+                hits.increment();
+                boolean forcedMate = (table.get(offset + FLAGS_OFFSET) & FLAG_FORCED_MATE) != 0;
+                return Optional.of(new PositionEval(
+                        MoveCodec.decode(table.getShort(offset + MOVE_OFFSET)),
+                        table.getInt(offset + SCORE_OFFSET),
+                        forcedMate,
+                        table.get(offset + DEPTH_OFFSET)));
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public synchronized void put(long key, int depth, PositionEval eval) {
+        int bucket = bucketStart(key);
+
+        int target = -1;
+        int shallowest = Integer.MAX_VALUE;
+
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            int offset = slotOffset(bucket + i);
+            long slotKey = table.getLong(offset);
+            int slotDepth = table.get(offset + DEPTH_OFFSET);
+
+            if (slotKey == key) {
+                if (slotDepth > depth) {
+                    return;
+                }
+                target = offset;
+                break;
+            }
+            if (slotKey == 0) {
+                target = offset;
+                break;
+            }
+            if (slotDepth < shallowest) {
+                shallowest = slotDepth;
+                target = offset;
+            }
+        }
+
+        table.putLong(target, key);
+        table.putInt(target + SCORE_OFFSET, (int) Math.round(eval.scoreCp()));
+        table.putShort(target + MOVE_OFFSET, MoveCodec.encode(eval.bestMoveUci()));
+        table.put(target + DEPTH_OFFSET, (byte) Math.min(depth, Byte.MAX_VALUE));
+        table.put(target + FLAGS_OFFSET, eval.forcedMate() ? FLAG_FORCED_MATE : 0);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        table.force();
+        channel.close();
+    }
+
+    private int bucketStart(long key) {
+        return (int) (key ^ (key >>> 32)) & slotMask & ~(BUCKET_SLOTS - 1);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
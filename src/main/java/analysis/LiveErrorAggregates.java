@@ -0,0 +1,103 @@
+package analysis;
+
+import domain.AnalysisResult;
+import domain.GameError;
+import domain.enums.ErrorSeverity;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ErrorAggregates} updated as each game finishes, from any number of threads, and readable
+ * at any time. Writers add to one of several stripes picked by thread, each behind its own lock,
+ * so concurrent classification workers rarely wait on each other; a game is added to its stripe
+ * as a whole, so a snapshot never shows half of one. Reading merges the stripes: a cell per enum
+ * combination and a few counters, never the errors themselves. The totals shown while the run
+ * goes on are also kept in adders of their own, read without touching the stripes.
+ */
+public class LiveErrorAggregates {
+
+    private final ErrorAggregates[] stripes;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder[] errorsBySeverity = new LongAdder[ErrorSeverity.values().length];
+    private final DoubleAdder cpLossSum = new DoubleAdder();
+
+    public LiveErrorAggregates() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public LiveErrorAggregates(int stripes) {
+        this.stripes = new ErrorAggregates[Integer.highestOneBit(Math.max(1, stripes) * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ErrorAggregates();
+        }
+        for (int i = 0; i < errorsBySeverity.length; i++) {
+            errorsBySeverity[i] = new LongAdder();
+        }
+    }
+
+    public void record(AnalysisResult result) {
+        ErrorAggregates stripe = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            stripe.add(result);
+        }
+        for (GameError error : result.errors()) {
+            errorsBySeverity[error.severity().ordinal()].increment();
+            cpLossSum.add(error.centipawnLoss());
+        }
+        errors.add(result.errors().size());
+        games.increment();
+    }
+
+    /**
+     * Adds aggregates gathered elsewhere, such as those of the games analyzed by earlier runs.
+     */
+    public void add(ErrorAggregates earlier) {
+        ErrorAggregates stripe = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            stripe.merge(earlier);
+        }
+        for (ErrorSeverity severity : ErrorSeverity.values()) {
+            errorsBySeverity[severity.ordinal()].add(earlier.count(severity));
+        }
+        cpLossSum.add(earlier.averageCpLoss() * earlier.count());
+        errors.add(earlier.count());
+        games.add(earlier.analyzedGames());
+    }
+
+    /**
+     * Games recorded so far. Like the other counters it is read without locking, so while games
+     * are being recorded it may not match them, or a snapshot, exactly.
+     */
+    public long games() {
+        return games.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public long errors(ErrorSeverity severity) {
+        return errorsBySeverity[severity.ordinal()].sum();
+    }
+
+    public double averageCpLoss() {
+        long count = errors();
+        return count > 0 ? cpLossSum.sum() / count : 0.0;
+    }
+
+    /**
+     * Aggregates of every game recorded so far, as a new instance the caller owns: it does not
+     * change with later games and can be merged or handed to a report.
+     */
+    public ErrorAggregates snapshot() {
+        ErrorAggregates snapshot = new ErrorAggregates();
+        for (ErrorAggregates stripe : stripes) {
+            synchronized (stripe) {
+                snapshot.merge(stripe);
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,117 @@
+package analysis;
+
+import domain.PositionEval;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search results shared by every engine of a batch, by position and search limit. When an engine
+ * asks for a position another engine is already searching, it waits for that search instead of
+ * starting its own; finished results answer later requests directly. Repertoire lines and common
+ * structures make the same positions come up in many games of one player.
+ */
+public class PositionTable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private record Key(long positionKey, SearchLimit limit) {
+    }
+
+    @FunctionalInterface
+    public interface Search {
+        PositionEval run();
+    }
+
+    private final ConcurrentMap<Key, CompletableFuture<PositionEval>> results = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder awaited = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    public PositionTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity finished results kept; past it only searches in progress are shared
+     */
+    public PositionTable(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the result of the position, running the search on the calling thread unless another
+     * thread already ran or is running it.
+     */
+    public PositionEval evaluate(long positionKey, SearchLimit limit, Search search) {
+        Key key = new Key(positionKey, limit);
+
+        CompletableFuture<PositionEval> own = new CompletableFuture<>();
+        CompletableFuture<PositionEval> existing = results.putIfAbsent(key, own);
+
+        if (existing != null) {
+            boolean done = existing.isDone();
+            try {
+                PositionEval eval = existing.join();
+                (done ? reused : awaited).increment();
+                return eval;
+            } catch (CompletionException e) {
+                // the other search failed: try it on this engine, a search that was not avoided
+                searches.increment();
+                return search.run();
+            }
+        }
+
+        searches.increment();
+        try {
+            PositionEval eval = search.run();
+            own.complete(eval);
+            if (results.size() > capacity) {
+                results.remove(key, own);
+            }
+            return eval;
+        } catch (RuntimeException e) {
+            results.remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets every result, so that the next batch on the same engines starts from an empty table;
+     * call it between batches, not while a search is running.
+     */
+    public void clear() {
+        results.clear();
+    }
+
+    /**
+     * Searches run on an engine, including those retried after the search they waited on failed.
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * Requests that waited for a search running on another engine.
+     */
+    public long getAwaited() {
+        return awaited.sum();
+    }
+
+    /**
+     * Requests answered by a search finished earlier in the batch.
+     */
+    public long getReused() {
+        return reused.sum();
+    }
+
+    public long getAvoidedSearches() {
+        return awaited.sum() + reused.sum();
+    }
+}
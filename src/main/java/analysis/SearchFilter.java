@@ -0,0 +1,92 @@
+package analysis;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rules deciding when an engine search can be skipped because its result is already known.
+ * Shared by all the engines of a pool; the counters are thread-safe.
+ */
+public class SearchFilter {
+
+    public enum Rule {
+        // a single legal move is always the best one: only the position after it is searched
+        FORCED,
+        // a move from a position of the local opening book into another one is theory: nothing is searched;
+        // positions only the remote explorer knows are searched, their answer comes too late
+        BOOK,
+        // the game was already decided before the move and still is after it: only the position after it is
+        // searched and the move counts as the best one, so a blunder that leaves the game decided is never
+        // reported; opt-in for that reason
+        DECIDED
+    }
+
+    private static final double DEFAULT_DECIDED_CP = 1_000;
+
+    private final Set<Rule> rules;
+    private final double decidedCp;
+    private final Map<Rule, LongAdder> savedSearches = new EnumMap<>(Rule.class);
+
+    /**
+     * @param decidedCp evaluation, in centipawns and either way, beyond which the game counts as
+     *                  decided; mate scores are always beyond it
+     */
+    public SearchFilter(Set<Rule> rules, double decidedCp) {
+        this.rules = rules.isEmpty() ? EnumSet.noneOf(Rule.class) : EnumSet.copyOf(rules);
+        this.decidedCp = decidedCp;
+        for (Rule rule : Rule.values()) {
+            savedSearches.put(rule, new LongAdder());
+        }
+    }
+
+    /**
+     * The rules that never change an error found: {@link Rule#FORCED} and {@link Rule#BOOK}.
+     */
+    public static SearchFilter defaults() {
+        return new SearchFilter(EnumSet.of(Rule.FORCED, Rule.BOOK), DEFAULT_DECIDED_CP);
+    }
+
+    public static SearchFilter disabled() {
+        return new SearchFilter(EnumSet.noneOf(Rule.class), DEFAULT_DECIDED_CP);
+    }
+
+    public boolean isEnabled(Rule rule) {
+        return rules.contains(rule);
+    }
+
+    /**
+     * Whether both evaluations, from the same point of view, are beyond the decided threshold in
+     * favour of the same side.
+     */
+    public boolean staysDecided(double evalBefore, double evalAfter) {
+        if (!isEnabled(Rule.DECIDED)) {
+            return false;
+        }
+        return (evalBefore >= decidedCp && evalAfter >= decidedCp)
+                || (evalBefore <= -decidedCp && evalAfter <= -decidedCp);
+    }
+
+    public boolean isDecided(double eval) {
+        return isEnabled(Rule.DECIDED) && Math.abs(eval) >= decidedCp;
+    }
+
+    void recordSkipped(Rule rule, int searches) {
+        savedSearches.get(rule).add(searches);
+    }
+
+    public long savedSearches(Rule rule) {
+        return savedSearches.get(rule).sum();
+    }
+
+    public long savedSearches() {
+        return savedSearches.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "rules=" + rules + ", decided beyond " + (int) decidedCp + "cp";
+    }
+}
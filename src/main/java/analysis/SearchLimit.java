@@ -0,0 +1,52 @@
+package analysis;
+
+/**
+ * How far the engine searches each position: a fixed depth, a node budget or a time budget.
+ */
+public record SearchLimit(Kind kind, long value) {
+
+    public enum Kind {
+        DEPTH,
+        NODES,
+        MOVETIME
+    }
+
+    public SearchLimit {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive: " + kind + " " + value);
+        }
+    }
+
+    public static SearchLimit depth(int depth) {
+        return new SearchLimit(Kind.DEPTH, depth);
+    }
+
+    public static SearchLimit nodes(long nodes) {
+        return new SearchLimit(Kind.NODES, nodes);
+    }
+
+    public static SearchLimit moveTimeMillis(long millis) {
+        return new SearchLimit(Kind.MOVETIME, millis);
+    }
+
+    public String goCommand() {
+        return switch (kind) {
+            case DEPTH -> "go depth " + value;
+            case NODES -> "go nodes " + value;
+            case MOVETIME -> "go movetime " + value;
+        };
+    }
+
+    /**
+     * Depth a cached evaluation must reach to replace this search, or -1 when the search is not
+     * bounded by depth and the cache cannot tell whether an entry is good enough.
+     */
+    public int cacheDepth() {
+        return kind == Kind.DEPTH ? (int) value : -1;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + " " + value;
+    }
+}
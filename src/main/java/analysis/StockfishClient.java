@@ -6,33 +6,102 @@ import com.github.bhlangonijr.chesslib.Side;
 import com.github.bhlangonijr.chesslib.move.Move;
 import domain.LichessGame;
 import domain.OpeningResponse;
+import domain.PositionEval;
 import domain.RawMoveEvaluation;
 import domain.enums.GamePhase;
 import fetch.LichessOpeningExplorer;
 import net.andreinc.neatchess.client.UCI;
-import net.andreinc.neatchess.client.model.Analysis;
 import parser.PGNParser;
+import parser.PositionKeys;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class StockfishClient {
 
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // mate scores are mapped to +/-(MATE_SCORE_CP - moves to mate)
+    private static final int MATE_SCORE_CP = 10_000;
+    private static final long COMMAND_TIMEOUT_MILLIS = 60_000;
+
     private UCI uci;
-    private final LichessOpeningExplorer openingExplorer = new LichessOpeningExplorer();
+    private final EngineConfig engineConfig;
+    private final LichessOpeningExplorer openingExplorer;
+    private final EvaluationCache evaluationCache;
+    private final SearchFilter searchFilter;
+    private final PositionTable positionTable;
     private static final int MIN_OPENING_MOVES = 6;
     private static final int MAX_OPENING_MOVES = 16;
 
 
+    public StockfishClient() {
+        this(EngineConfig.defaults(), new LichessOpeningExplorer(), null);
+    }
+
+    public StockfishClient(EngineConfig engineConfig, LichessOpeningExplorer openingExplorer, EvaluationCache evaluationCache) {
+        this(engineConfig, openingExplorer, evaluationCache, SearchFilter.disabled());
+    }
+
+    /**
+     * @param searchFilter rules skipping searches whose result is already known, usually shared by the whole pool
+     */
+    public StockfishClient(EngineConfig engineConfig, LichessOpeningExplorer openingExplorer,
+                           EvaluationCache evaluationCache, SearchFilter searchFilter) {
+        this(engineConfig, openingExplorer, evaluationCache, searchFilter, null);
+    }
+
+    /**
+     * @param positionTable results shared with the other engines of the pool, so that no position is
+     *                      searched by two engines at once; {@code null} to search independently
+     */
+    public StockfishClient(EngineConfig engineConfig, LichessOpeningExplorer openingExplorer,
+                           EvaluationCache evaluationCache, SearchFilter searchFilter, PositionTable positionTable) {
+        this.engineConfig = engineConfig;
+        this.openingExplorer = openingExplorer;
+        this.evaluationCache = evaluationCache;
+        this.searchFilter = searchFilter;
+        this.positionTable = positionTable;
+    }
+
     public void start() {
         uci = new UCI();
-        uci.startStockfish(); // stockfish must be in PATH environment variable
+        uci.start(engineConfig.command()); // stockfish must be in PATH environment variable
+        setOption("Threads", engineConfig.threads());
+        setOption("Hash", engineConfig.hashMb());
+        setOption("MultiPV", engineConfig.multiPv());
+        // once per process: the hash table stays warm across the games analyzed by this engine
+        uci.uciNewGame();
+    }
+
+    private void setOption(String name, int value) {
+        uci.command("setoption name " + name + " value " + value, lines -> lines,
+                line -> line.startsWith("readyok"), COMMAND_TIMEOUT_MILLIS).getResultOrThrow();
+    }
+
+    public EngineConfig getEngineConfig() {
+        return engineConfig;
     }
 
     public void stop() {
         if (uci != null) {
             uci.close();
+            uci = null;
+        }
+    }
+
+    public boolean isHealthy() {
+        if (uci == null) {
+            return false;
+        }
+        try {
+            // waits for the engine's readyok, fails if the process died
+            uci.positionFen(START_FEN).getResultOrThrow();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
         }
     }
 
@@ -42,35 +111,48 @@ public class StockfishClient {
             throw new IllegalArgumentException("Invalid game or PGN data.");
         }
 
-        String gameId = game.gameId();
-        List<RawMoveEvaluation> evaluations = new ArrayList<>();
+        List<String> moves = PGNParser.convertPgnToUciMoves(game.pgn());
+        return analyzeMoves(game.gameId(), moves, SearchLimit.depth(depth), targetColor);
+    }
 
-        uci.uciNewGame();
+    public List<RawMoveEvaluation> analyzeMoves(String gameId, List<String> moves, SearchLimit limit, Side targetColor) {
+        return analyzeMoves(gameId, moves, limit, targetColor, evaluation -> { });
+    }
+
+    /**
+     * @param onEvaluation called with each move's evaluation as soon as it is complete, on the calling thread
+     */
+    public List<RawMoveEvaluation> analyzeMoves(String gameId, List<String> moves, SearchLimit limit, Side targetColor,
+                                                Consumer<RawMoveEvaluation> onEvaluation) {
+
+        List<RawMoveEvaluation> evaluations = new ArrayList<>();
 
-        List<String> moves = PGNParser.convertPgnToUciMoves(game.pgn());
         Board board = new Board();
         String openingName = null;
         String openingEco = null;
+        boolean outOfBook = false;
+
+        // evaluation after the player's previous move, from the player's point of view
+        Double lastEvalAfter = null;
 
         for (String uciMove : moves) {
 
             Side moveColor = board.getSideToMove();
             int moveNumber = board.getMoveCounter();
 
-            String fenBefore = board.getFen();
+            if (moveColor != targetColor) {
+                // opponent moves are never scored, no need to search before or after them
+                board.doMove(new Move(uciMove, moveColor));
+                continue;
+            }
 
-        /* ==========================
-           ENGINE EVAL BEFORE MOVE
-           ========================== */
-            uci.positionFen(fenBefore);
-            Analysis analysisBefore = uci.analysis(depth).getResultOrThrow();
+            String fenBefore = board.getFen();
+            long keyBefore = PositionKeys.key(board);
 
-            double evalBest = extractCp(analysisBefore, moveColor, targetColor);
+            // a remote opening lookup runs on the I/O executor while the engine searches this move
+            CompletableFuture<Optional<OpeningResponse>> openingLookup =
+                    outOfBook ? null : openingExplorer.getOpeningAsync(keyBefore, fenBefore);
 
-            String bestMoveUci = null;
-            if (analysisBefore.getBestMove() != null) {
-                bestMoveUci = analysisBefore.getBestMove().getLan();
-            }
             int legalMovesCount = board.legalMoves().size();
             boolean forced = legalMovesCount <= 1;
 
@@ -90,19 +172,49 @@ public class StockfishClient {
            ========================== */
             board.doMove(chessMove);
 
-            if (moveColor != targetColor) {
-                continue;
-            }
-
             String fenAfter = board.getFen();
+            long keyAfter = PositionKeys.key(board);
+
+            // the local book only: waiting on a remote answer here would keep a pooled engine idle
+            boolean bookMove = openingLookup != null && searchFilter.isEnabled(SearchFilter.Rule.BOOK)
+                    && openingExplorer.isInLocalBook(keyBefore) && openingExplorer.isInLocalBook(keyAfter);
 
         /* ==========================
-           ENGINE EVAL AFTER MOVE
+           ENGINE EVAL BEFORE & AFTER MOVE
            ========================== */
-            uci.positionFen(fenAfter);
-            Analysis analysisAfter = uci.analysis(depth).getResultOrThrow();
+            PositionEval before;
+            PositionEval after;
+
+            if (bookMove) {
+                // theory move: the game keeps its last known evaluation
+                double bookEval = lastEvalAfter != null ? lastEvalAfter : 0;
+                before = new PositionEval(uciMove, normalizeEval(bookEval, targetColor, moveColor), false, 0);
+                after = new PositionEval(null, normalizeEval(bookEval, targetColor, board.getSideToMove()), false, 0);
+                searchFilter.recordSkipped(SearchFilter.Rule.BOOK, 2);
+            } else if ((forced && searchFilter.isEnabled(SearchFilter.Rule.FORCED))
+                    || (lastEvalAfter != null && searchFilter.isDecided(lastEvalAfter))) {
+                after = evaluate(keyAfter, fenAfter, limit);
+                double afterEval = normalizeEval(after.scoreCp(), board.getSideToMove(), targetColor);
+
+                if (forced && searchFilter.isEnabled(SearchFilter.Rule.FORCED)) {
+                    before = reachedBy(uciMove, after);
+                    searchFilter.recordSkipped(SearchFilter.Rule.FORCED, 1);
+                } else if (searchFilter.staysDecided(lastEvalAfter, afterEval)) {
+                    before = reachedBy(uciMove, after);
+                    searchFilter.recordSkipped(SearchFilter.Rule.DECIDED, 1);
+                } else {
+                    before = evaluate(keyBefore, fenBefore, limit);
+                }
+            } else {
+                before = evaluate(keyBefore, fenBefore, limit);
+                after = evaluate(keyAfter, fenAfter, limit);
+            }
 
-            double evalAfter = extractCp(analysisAfter, board.getSideToMove(), targetColor);
+            double evalBest = normalizeEval(before.scoreCp(), moveColor, targetColor);
+            String bestMoveUci = before.bestMoveUci();
+
+            double evalAfter = normalizeEval(after.scoreCp(), board.getSideToMove(), targetColor);
+            lastEvalAfter = evalAfter;
 
         /* ==========================
            MATERIAL & CP LOSS
@@ -112,16 +224,21 @@ public class StockfishClient {
 
             int relativeMaterial = targetColor == Side.WHITE ? materialAfter : -materialAfter;
 
-            double cpLoss = moveColor == Side.WHITE ? evalBest - evalAfter : evalAfter - evalBest;
+            double cpLoss = cpLoss(evalBest, evalAfter, moveColor);
 
-            double relativeCpLoss = relativeMaterial != 0 ? cpLoss / Math.abs(relativeMaterial) : cpLoss;
+            double relativeCpLoss = relativeCpLoss(cpLoss, relativeMaterial);
 
         /* ==========================
            OPENING INFO
            ========================== */
-            Optional<OpeningResponse> opening = openingExplorer.getOpeningFromFen(fenBefore);
+            // once the game has left book it does not come back, skip the lookups
+            Optional<OpeningResponse> opening = openingLookup != null ? openingLookup.join() : Optional.empty();
 
             boolean inOpeningTheory = opening.isPresent();
+            // the starting position itself is not a named opening
+            if (!inOpeningTheory && moveNumber > 1) {
+                outOfBook = true;
+            }
             if(openingName == null && opening.isPresent()){
                 var openingInfo = opening.get().opening();
                 openingName = openingInfo.name();
@@ -138,7 +255,7 @@ public class StockfishClient {
            ========================== */
             String sanMove = chessMove.toString();  // CORRETTO
 
-            boolean createsMateThreat = Math.abs(evalAfter) > 9000 && Math.abs(evalBest) < 9000;
+            boolean createsMateThreat = createsMateThreat(evalBest, evalAfter);
 
         /* ==========================
            BUILD EVALUATION
@@ -159,6 +276,8 @@ public class StockfishClient {
                     materialDelta,
                     fenBefore,
                     fenAfter,
+                    keyBefore,
+                    keyAfter,
                     cpLoss,
                     relativeCpLoss,
                     phase,
@@ -173,6 +292,7 @@ public class StockfishClient {
             );
 
             evaluations.add(evaluation);
+            onEvaluation.accept(evaluation);
         }
 
         return evaluations;
@@ -181,13 +301,192 @@ public class StockfishClient {
 
 
 
-    private double extractCp(Analysis analysis, Side sideToMove, Side pov) {
-        if (analysis == null || analysis.getBestMove() == null){
-            return 0;
+    /**
+     * Searches every ply with the triage limit, then searches the suspect plies again with the full
+     * limit. Moves, phases and opening data come from the triage pass; only engine values change.
+     */
+    public AdaptiveSearch.Evaluations analyzeMoves(String gameId, List<String> moves, AdaptiveSearch search, Side targetColor) {
+        return analyzeMoves(gameId, moves, search, targetColor, evaluation -> { }, evaluation -> { });
+    }
+
+    /**
+     * @param onTriage called with each move's triage evaluation as soon as it is complete, on the
+     *                 calling thread; never called when the search has a single tier
+     * @param onFull   called with each move's final evaluation as soon as it is complete, on the
+     *                 calling thread; a move that is not searched again gets the same instance as
+     *                 its triage evaluation
+     */
+    public AdaptiveSearch.Evaluations analyzeMoves(String gameId, List<String> moves, AdaptiveSearch search, Side targetColor,
+                                                   Consumer<RawMoveEvaluation> onTriage, Consumer<RawMoveEvaluation> onFull) {
+
+        if (!search.isTwoTier()) {
+            List<RawMoveEvaluation> evaluations = analyzeMoves(gameId, moves, search.fullLimit(), targetColor, onFull);
+            return new AdaptiveSearch.Evaluations(evaluations, evaluations, 0);
+        }
+
+        List<RawMoveEvaluation> triage = analyzeMoves(gameId, moves, search.triageLimit(), targetColor, onTriage);
+        List<RawMoveEvaluation> full = new ArrayList<>(triage.size());
+        int researched = 0;
+
+        RawMoveEvaluation previous = null;
+        for (RawMoveEvaluation evaluation : triage) {
+            boolean suspect = search.isSuspect(evaluation, previous);
+            RawMoveEvaluation result = suspect ? research(evaluation, search.fullLimit(), targetColor) : evaluation;
+            if (suspect) {
+                researched++;
+            }
+            full.add(result);
+            onFull.accept(result);
+            previous = evaluation;
+        }
+
+        return new AdaptiveSearch.Evaluations(triage, full, researched);
+    }
+
+    private RawMoveEvaluation research(RawMoveEvaluation triage, SearchLimit limit, Side targetColor) {
+        PositionEval before = evaluate(triage.positionKeyBefore(), triage.fenBefore(), limit);
+        PositionEval after = evaluate(triage.positionKeyAfter(), triage.fenAfter(), limit);
+
+        double evalBest = normalizeEval(before.scoreCp(), triage.playerColor(), targetColor);
+        double evalAfter = normalizeEval(after.scoreCp(), triage.sideToMoveAfter(), targetColor);
+        double cpLoss = cpLoss(evalBest, evalAfter, triage.playerColor());
+
+        return new RawMoveEvaluation(
+                triage.gameId(),
+                triage.playerColor(),
+                triage.moveNumber(),
+                triage.uciMove(),
+                triage.sanMove(),
+                evalBest,
+                evalAfter,
+                evalBest,
+                before.bestMoveUci(),
+                triage.forced(),
+                triage.legalMovesCount(),
+                triage.materialBalance(),
+                triage.materialDelta(),
+                triage.fenBefore(),
+                triage.fenAfter(),
+                triage.positionKeyBefore(),
+                triage.positionKeyAfter(),
+                cpLoss,
+                relativeCpLoss(cpLoss, triage.materialBalance()),
+                triage.phase(),
+                triage.sideToMoveAfter(),
+                triage.capture(),
+                triage.check(),
+                triage.promotion(),
+                createsMateThreat(evalBest, evalAfter),
+                triage.inOpeningTheory(),
+                triage.openingName(),
+                triage.openingEco()
+        );
+    }
+
+    /**
+     * Evaluation of the position before a move that is known to be the best one, from the
+     * evaluation of the position it leads to.
+     */
+    private static PositionEval reachedBy(String uciMove, PositionEval after) {
+        return new PositionEval(uciMove, -after.scoreCp(), after.forcedMate(), after.depth());
+    }
+
+    private static double cpLoss(double evalBest, double evalAfter, Side moveColor) {
+        return moveColor == Side.WHITE ? evalBest - evalAfter : evalAfter - evalBest;
+    }
+
+    private static double relativeCpLoss(double cpLoss, int relativeMaterial) {
+        return relativeMaterial != 0 ? cpLoss / Math.abs(relativeMaterial) : cpLoss;
+    }
+
+    private static boolean createsMateThreat(double evalBest, double evalAfter) {
+        return Math.abs(evalAfter) > 9000 && Math.abs(evalBest) < 9000;
+    }
+
+    private PositionEval evaluate(long positionKey, String fen, SearchLimit limit) {
+        int cacheDepth = limit.cacheDepth();
+        if (evaluationCache != null && cacheDepth > 0) {
+            Optional<PositionEval> cached = evaluationCache.get(positionKey, cacheDepth);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        if (positionTable != null) {
+            return positionTable.evaluate(positionKey, limit, () -> search(positionKey, fen, limit));
         }
+        return search(positionKey, fen, limit);
+    }
+
+    private PositionEval search(long positionKey, String fen, SearchLimit limit) {
+        uci.positionFen(fen);
+        long timeout = limit.kind() == SearchLimit.Kind.MOVETIME
+                ? limit.value() + COMMAND_TIMEOUT_MILLIS : COMMAND_TIMEOUT_MILLIS;
+        PositionEval eval = uci.command(limit.goCommand(), StockfishClient::parseSearch,
+                line -> line.startsWith("bestmove"), timeout).getResultOrThrow();
+
+        if (evaluationCache != null && eval.depth() > 0) {
+            // stored with the depth actually reached, whatever limit was used
+            evaluationCache.put(positionKey, eval.depth(), eval);
+        }
+        return eval;
+    }
+
+    /* ==========================
+       UCI SEARCH OUTPUT
+       ========================== */
+
+    static PositionEval parseSearch(List<String> lines) {
+        String bestMove = null;
+        double scoreCp = 0;
+        boolean forcedMate = false;
+        int depth = 0;
+
+        for (String line : lines) {
+            if (line.startsWith("bestmove")) {
+                String[] tokens = line.split(" ");
+                if (tokens.length > 1 && !tokens[1].equals("(none)")) {
+                    bestMove = tokens[1];
+                }
+            } else if (line.startsWith("info") && line.contains(" score ")) {
+                String[] tokens = line.split(" ");
+                int lineDepth = 0;
+                int multiPv = 1;
+                Integer cp = null;
+                Integer mate = null;
+                boolean bound = false;
+
+                for (int i = 1; i < tokens.length - 1; i++) {
+                    switch (tokens[i]) {
+                        case "depth" -> lineDepth = Integer.parseInt(tokens[++i]);
+                        case "multipv" -> multiPv = Integer.parseInt(tokens[++i]);
+                        case "score" -> {
+                            String type = tokens[++i];
+                            int value = Integer.parseInt(tokens[++i]);
+                            if (type.equals("cp")) cp = value;
+                            else if (type.equals("mate")) mate = value;
+                        }
+                        case "lowerbound", "upperbound" -> bound = true;
+                        case "pv" -> i = tokens.length;
+                        default -> { }
+                    }
+                }
+
+                // later lines of the principal variation override earlier, shallower ones; a bound
+                // from a failed aspiration window is not the score of the position
+                if (multiPv != 1 || bound || (cp == null && mate == null)) continue;
+                depth = lineDepth;
+                forcedMate = mate != null;
+                scoreCp = mate != null ? mateScore(mate) : cp;
+            }
+        }
+
+        return new PositionEval(bestMove, scoreCp, forcedMate, depth);
+    }
 
-        var strength = analysis.getBestMove().getStrength();
-        return strength.getScore() != null ? normalizeEval(strength.getScore() * 100, sideToMove, pov) : 0;
+    private static double mateScore(int movesToMate) {
+        // "mate 0" and negative values: the side to move is the one getting mated
+        return movesToMate > 0 ? MATE_SCORE_CP - movesToMate : -MATE_SCORE_CP - movesToMate;
     }
 
     private double normalizeEval(double eval, Side sideToMove, Side pov) {
@@ -0,0 +1,132 @@
+package analysis;
+
+import domain.GameError;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code k} errors with the highest centipawn loss of every severity x category x phase,
+ * kept in one bounded min-heap per bucket as the errors stream in: the heap root is the mildest
+ * error kept, replaced whenever a worse one arrives. Memory and ordering cost depend on {@code k},
+ * not on the number of errors seen. Not thread-safe.
+ */
+public class TopErrors {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final int CATEGORIES = ErrorCategory.values().length;
+    private static final int PHASES = GamePhase.values().length;
+    private static final int BUCKETS = ErrorSeverity.values().length * CATEGORIES * PHASES;
+
+    // mildest first; ties broken by game and move so that the errors kept do not depend on arrival order
+    private static final Comparator<GameError> MILDEST_FIRST = Comparator.comparingDouble(GameError::centipawnLoss)
+            .thenComparing(GameError::gameId, Comparator.reverseOrder())
+            .thenComparing(GameError::moveNumber, Comparator.reverseOrder());
+
+    private final int k;
+    private final List<PriorityQueue<GameError>> buckets = new ArrayList<>(BUCKETS);
+    private long seen;
+
+    public TopErrors() {
+        this(DEFAULT_K);
+    }
+
+    public TopErrors(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new PriorityQueue<>(MILDEST_FIRST));
+        }
+    }
+
+    public static TopErrors of(Iterable<GameError> errors, int k) {
+        TopErrors top = new TopErrors(k);
+        top.addAll(errors);
+        return top;
+    }
+
+    /**
+     * Top errors as stored from {@link #worst()} and {@link #seen()}.
+     */
+    public static TopErrors of(int k, Iterable<GameError> kept, long seen) {
+        TopErrors top = of(kept, k);
+        top.seen = seen;
+        return top;
+    }
+
+    private static int bucket(GameError error) {
+        return (error.severity().ordinal() * CATEGORIES + error.category().ordinal()) * PHASES + error.phase().ordinal();
+    }
+
+    public void add(GameError error) {
+        seen++;
+        PriorityQueue<GameError> bucket = buckets.get(bucket(error));
+        if (bucket.size() < k) {
+            bucket.add(error);
+        } else if (MILDEST_FIRST.compare(error, bucket.peek()) > 0) {
+            bucket.poll();
+            bucket.add(error);
+        }
+    }
+
+    public void addAll(Iterable<GameError> errors) {
+        for (GameError error : errors) {
+            add(error);
+        }
+    }
+
+    /**
+     * Adds the errors kept by {@code other}; the result is the top {@code k} of both inputs together.
+     */
+    public TopErrors merge(TopErrors other) {
+        for (PriorityQueue<GameError> bucket : other.buckets) {
+            for (GameError error : bucket) {
+                add(error);
+            }
+        }
+        seen += other.seen - other.size();
+        return this;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /**
+     * Errors kept, at most {@code k} per bucket.
+     */
+    public int size() {
+        int size = 0;
+        for (PriorityQueue<GameError> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    /**
+     * Errors offered so far, kept or not.
+     */
+    public long seen() {
+        return seen;
+    }
+
+    /**
+     * The errors kept in every bucket, worst first.
+     */
+    public List<GameError> worst() {
+        List<GameError> worst = new ArrayList<>(size());
+        for (PriorityQueue<GameError> bucket : buckets) {
+            worst.addAll(bucket);
+        }
+        worst.sort(MILDEST_FIRST.reversed());
+        return worst;
+    }
+}
@@ -0,0 +1,172 @@
+package app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Inline SVG board diagrams for one HTML document. The board, the pieces and the arrow heads are
+ * defined once; every distinct position (placement and orientation) becomes a symbol of its own,
+ * written by {@link #writeDefinitions}, and each diagram is a reference to it plus its arrows.
+ * Nothing is fetched when the report is opened.
+ */
+final class BoardDiagrams {
+
+    private static final int SQUARE = 45;
+    private static final int SIZE = SQUARE * 8;
+
+    private static final String LIGHT = "#f0d9b5";
+    private static final String DARK = "#b58863";
+    private static final String PLAYED_COLOR = "rgba(220,40,40,0.75)";
+    private static final String BEST_COLOR = "rgba(40,160,60,0.75)";
+
+    // filled glyphs for both sides, so that white and black pieces have the same shape
+    private static final String PIECES = "KQRBNP";
+    private static final String[] GLYPHS = {"&#9818;", "&#9819;", "&#9820;", "&#9821;", "&#9822;", "&#9823;"};
+
+    private final Map<String, Integer> positions = new LinkedHashMap<>();
+
+    /**
+     * Registers the position so that {@link #writeDefinitions} includes it; positions met again
+     * share the same symbol.
+     */
+    void add(String fen, boolean blackBottom) {
+        String placement = placement(fen);
+        if (placement != null) {
+            positions.putIfAbsent(key(placement, blackBottom), positions.size());
+        }
+    }
+
+    /**
+     * The shared board, pieces, arrow heads and every position added so far, in a hidden SVG.
+     */
+    void writeDefinitions(Writer out) throws IOException {
+        out.append("<svg width='0' height='0' style='position:absolute' aria-hidden='true'><defs>\n");
+
+        out.append("<symbol id='board' viewBox='0 0 ").append(String.valueOf(SIZE)).append(' ').append(String.valueOf(SIZE)).append("'>");
+        out.append("<rect width='").append(String.valueOf(SIZE)).append("' height='").append(String.valueOf(SIZE))
+                .append("' fill='").append(LIGHT).append("'/>");
+        for (int square = 0; square < 64; square++) {
+            if ((square / 8 + square % 8) % 2 == 1) {
+                out.append("<rect x='").append(String.valueOf(square % 8 * SQUARE)).append("' y='")
+                        .append(String.valueOf(square / 8 * SQUARE)).append("' width='45' height='45' fill='")
+                        .append(DARK).append("'/>");
+            }
+        }
+        out.append("</symbol>\n");
+
+        for (int i = 0; i < PIECES.length(); i++) {
+            writePiece(out, 'w', i, "#fff", "#000");
+            writePiece(out, 'b', i, "#000", "#000");
+        }
+
+        writeArrowHead(out, "played", PLAYED_COLOR);
+        writeArrowHead(out, "best", BEST_COLOR);
+
+        for (Map.Entry<String, Integer> position : positions.entrySet()) {
+            writePosition(out, position.getKey(), position.getValue());
+        }
+
+        out.append("</defs></svg>\n");
+    }
+
+    private static void writePiece(Writer out, char color, int piece, String fill, String stroke) throws IOException {
+        out.append("<symbol id='").append(color).append(PIECES.charAt(piece)).append("' viewBox='0 0 45 45'>")
+                .append("<text x='22.5' y='37' font-size='38' text-anchor='middle' fill='").append(fill)
+                .append("' stroke='").append(stroke).append("' stroke-width='1'>").append(GLYPHS[piece])
+                .append("</text></symbol>\n");
+    }
+
+    private static void writeArrowHead(Writer out, String name, String color) throws IOException {
+        out.append("<marker id='arrow-").append(name).append("' viewBox='0 0 10 10' refX='7' refY='5' ")
+                .append("markerWidth='3' markerHeight='3' orient='auto-start-reverse'>")
+                .append("<path d='M0,0 L10,5 L0,10 z' fill='").append(color).append("'/></marker>\n");
+    }
+
+    private static void writePosition(Writer out, String key, int id) throws IOException {
+        boolean blackBottom = key.charAt(0) == 'b';
+        String placement = key.substring(2);
+
+        out.append("<symbol id='pos-").append(String.valueOf(id)).append("' viewBox='0 0 ")
+                .append(String.valueOf(SIZE)).append(' ').append(String.valueOf(SIZE)).append("'>");
+        out.append("<use href='#board'/>");
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (Character.isDigit(c)) {
+                file += c - '0';
+            } else if (PIECES.indexOf(Character.toUpperCase(c)) >= 0) {
+                out.append("<use href='#").append(Character.isUpperCase(c) ? 'w' : 'b')
+                        .append(Character.toUpperCase(c)).append("' x='").append(String.valueOf(x(file, blackBottom)))
+                        .append("' y='").append(String.valueOf(y(rank, blackBottom))).append("' width='45' height='45'/>");
+                file++;
+            }
+        }
+        out.append("</symbol>\n");
+    }
+
+    /**
+     * A diagram of a position added before, with an arrow for each move given; moves are UCI and
+     * may be {@code null}.
+     */
+    void writeDiagram(Writer out, String fen, boolean blackBottom, String playedUci, String bestUci) throws IOException {
+        String placement = placement(fen);
+        Integer id = placement != null ? positions.get(key(placement, blackBottom)) : null;
+
+        out.append("<svg class='chess-board' viewBox='0 0 ").append(String.valueOf(SIZE)).append(' ')
+                .append(String.valueOf(SIZE)).append("' role='img'>");
+        if (id != null) {
+            out.append("<use href='#pos-").append(String.valueOf(id)).append("'/>");
+        } else {
+            out.append("<use href='#board'/>");
+        }
+        writeArrow(out, bestUci, blackBottom, "best", BEST_COLOR);
+        writeArrow(out, playedUci, blackBottom, "played", PLAYED_COLOR);
+        out.append("</svg>");
+    }
+
+    private static void writeArrow(Writer out, String uci, boolean blackBottom, String name, String color) throws IOException {
+        if (uci == null || uci.length() < 4) return;
+        int fromFile = uci.charAt(0) - 'a';
+        int fromRank = uci.charAt(1) - '1';
+        int toFile = uci.charAt(2) - 'a';
+        int toRank = uci.charAt(3) - '1';
+        if (!onBoard(fromFile, fromRank) || !onBoard(toFile, toRank)) return;
+
+        int half = SQUARE / 2;
+        out.append("<line x1='").append(String.valueOf(x(fromFile, blackBottom) + half))
+                .append("' y1='").append(String.valueOf(y(fromRank, blackBottom) + half))
+                .append("' x2='").append(String.valueOf(x(toFile, blackBottom) + half))
+                .append("' y2='").append(String.valueOf(y(toRank, blackBottom) + half))
+                .append("' stroke='").append(color).append("' stroke-width='9' stroke-linecap='round' marker-end='url(#arrow-")
+                .append(name).append(")'/>");
+    }
+
+    private static boolean onBoard(int file, int rank) {
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8;
+    }
+
+    private static int x(int file, boolean blackBottom) {
+        return (blackBottom ? 7 - file : file) * SQUARE;
+    }
+
+    private static int y(int rank, boolean blackBottom) {
+        return (blackBottom ? rank : 7 - rank) * SQUARE;
+    }
+
+    private static String placement(String fen) {
+        if (fen == null || fen.isBlank()) return null;
+        int end = fen.indexOf(' ');
+        return end < 0 ? fen : fen.substring(0, end);
+    }
+
+    private static String key(String placement, boolean blackBottom) {
+        return (blackBottom ? "b " : "w ") + placement;
+    }
+}
@@ -1,5 +1,7 @@
 package app;
 
+import analysis.ErrorAggregates;
+import analysis.TopErrors;
 import com.github.bhlangonijr.chesslib.Side;
 import domain.GameError;
 import domain.enums.ErrorCategory;
@@ -8,28 +10,58 @@ import domain.enums.GamePhase;
 
 import java.awt.Desktop;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.net.URLEncoder;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Writes the HTML report section by section to a buffered UTF-8 writer, so nothing but the row
+ * being written is held in memory. Statistics come from {@link ErrorAggregates}; the table lists
+ * only the worst errors of each severity, category and phase, kept by {@link TopErrors}. It is
+ * split into pages of {@code pageSize} rows: the first page is part of the report, the others are
+ * files of their own in a directory next to it. Charts and boards are inline SVG, so the report
+ * needs no network to open.
+ */
 public class GameErrorReportGenerator {
 
-    private final List<GameError> errors;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    // blunders first, matching the colors of the severity charts
+    private static final ErrorSeverity[] SEVERITIES_BY_GRAVITY = {ErrorSeverity.BLUNDER, ErrorSeverity.MISTAKE, ErrorSeverity.INACCURACY};
+
+    private static final String[] PHASE_COLORS = {"rgba(102,126,234,0.8)", "rgba(118,75,162,0.8)", "rgba(255,152,0,0.8)"};
+    private static final String[] CATEGORY_COLORS = {"rgba(255,99,132,0.8)", "rgba(54,162,235,0.8)", "rgba(255,206,86,0.8)",
+            "rgba(75,192,192,0.8)", "rgba(153,102,255,0.8)", "rgba(255,159,64,0.8)", "rgba(199,199,199,0.8)"};
+    private static final String[] SEVERITY_COLORS = {"rgba(255,68,68,0.8)", "rgba(255,152,0,0.8)", "rgba(255,193,7,0.8)"};
+
+    private final ErrorAggregates aggregates;
+    private final TopErrors topErrors;
+    private final int pageSize;
 
     public GameErrorReportGenerator(List<GameError> errors) {
-        this.errors = errors;
+        this(ErrorAggregates.of(errors), TopErrors.of(errors, TopErrors.DEFAULT_K), DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param aggregates the statistics of the summary and the charts
+     * @param topErrors  the errors listed in the table, collected over the same errors
+     */
+    public GameErrorReportGenerator(ErrorAggregates aggregates, TopErrors topErrors, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.aggregates = aggregates;
+        this.topErrors = topErrors;
+        this.pageSize = pageSize;
     }
 
     public void generateAndOpenHtmlReport() {
         try {
-            String html = generateHtmlReport();
-            File htmlFile = new File("chess_analysis_report.html");
-
-            try (FileWriter writer = new FileWriter(htmlFile)) {
-                writer.write(html);
-            }
+            File htmlFile = writeHtmlReport(Path.of("chess_analysis_report.html")).toFile();
 
             System.out.println("Report generato: " + htmlFile.getAbsolutePath());
 
@@ -41,41 +73,98 @@ public class GameErrorReportGenerator {
         }
     }
 
-    private String generateHtmlReport() {
-        StringBuilder html = new StringBuilder();
-
-        html.append("<!DOCTYPE html>\n");
-        html.append("<html lang='it'>\n");
-        html.append("<head>\n");
-        html.append("    <meta charset='UTF-8'>\n");
-        html.append("    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n");
-        html.append("    <title>Chess Analysis Report</title>\n");
-        html.append("    <script src='https://cdnjs.cloudflare.com/ajax/libs/Chart.js/4.4.0/chart.umd.min.js'></script>\n");
-        html.append("    <style>\n");
-        html.append(getStyles());
-        html.append("    </style>\n");
-        html.append("</head>\n");
-        html.append("<body>\n");
-
-        html.append("    <div class='container'>\n");
-        html.append("        <header>\n");
-        html.append("            <h1>&#9823; Chess Analysis Report</h1>\n");
-        html.append("            <p class='subtitle'>Analisi dettagliata degli errori nelle partite</p>\n");
-        html.append("        </header>\n");
-
-        html.append(generateSummarySection());
-        html.append(generateChartsSection());
-        html.append(generateStatisticsSection());
-        html.append(generateErrorsTableSection());
-
-        html.append("    </div>\n");
-        html.append("    <script>\n");
-        html.append(getChartScripts());
-        html.append("    </script>\n");
-        html.append("</body>\n");
-        html.append("</html>\n");
-
-        return html.toString();
+    /**
+     * Writes the report to {@code file}, and the error pages after the first to
+     * {@code <file name>_errori/}, without opening it.
+     */
+    public Path writeHtmlReport(Path file) throws IOException {
+        List<GameError> sortedErrors = topErrors.worst();
+        int pages = Math.max(1, (sortedErrors.size() + pageSize - 1) / pageSize);
+
+        Path pageDirectory = pageDirectory(file);
+        deletePages(pageDirectory);
+        if (pages > 1) {
+            Files.createDirectories(pageDirectory);
+        }
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeHtmlReport(out, sortedErrors, pages, file.getFileName().toString());
+        }
+        for (int page = 2; page <= pages; page++) {
+            try (Writer out = Files.newBufferedWriter(pageDirectory.resolve(pageFileName(page)), StandardCharsets.UTF_8)) {
+                writeErrorsPage(out, sortedErrors, page, pages, file.getFileName().toString());
+            }
+        }
+        return file;
+    }
+
+    private static Path pageDirectory(Path file) {
+        String name = file.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        return file.resolveSibling((extension > 0 ? name.substring(0, extension) : name) + "_errori");
+    }
+
+    private static String pageFileName(int page) {
+        return "pagina-" + page + ".html";
+    }
+
+    // pages of an earlier, longer report would otherwise stay behind
+    private static void deletePages(Path pageDirectory) throws IOException {
+        if (!Files.isDirectory(pageDirectory)) return;
+        try (DirectoryStream<Path> pages = Files.newDirectoryStream(pageDirectory, "pagina-*.html")) {
+            for (Path page : pages) {
+                Files.delete(page);
+            }
+        }
+    }
+
+    private void writeHtmlReport(Writer out, List<GameError> sortedErrors, int pages, String reportName) throws IOException {
+        writeHead(out, "Chess Analysis Report");
+
+        out.append("    <div class='container'>\n");
+        out.append("        <header>\n");
+        out.append("            <h1>&#9823; Chess Analysis Report</h1>\n");
+        out.append("            <p class='subtitle'>Analisi dettagliata degli errori nelle partite</p>\n");
+        out.append("        </header>\n");
+
+        writeSummarySection(out);
+        writeChartsSection(out);
+        writeStatisticsSection(out);
+        writeErrorsTableSection(out, sortedErrors, 1, pages, reportName);
+
+        out.append("    </div>\n");
+        out.append("</body>\n");
+        out.append("</html>\n");
+    }
+
+    private void writeErrorsPage(Writer out, List<GameError> sortedErrors, int page, int pages, String reportName) throws IOException {
+        writeHead(out, "Chess Analysis Report - Pagina " + page);
+
+        out.append("    <div class='container'>\n");
+        out.append("        <header>\n");
+        out.append("            <h1>&#9823; Chess Analysis Report</h1>\n");
+        out.append("            <p class='subtitle'><a href='../").append(escapeHtml(reportName)).append("'>Torna al riepilogo</a></p>\n");
+        out.append("        </header>\n");
+
+        writeErrorsTableSection(out, sortedErrors, page, pages, reportName);
+
+        out.append("    </div>\n");
+        out.append("</body>\n");
+        out.append("</html>\n");
+    }
+
+    private void writeHead(Writer out, String title) throws IOException {
+        out.append("<!DOCTYPE html>\n");
+        out.append("<html lang='it'>\n");
+        out.append("<head>\n");
+        out.append("    <meta charset='UTF-8'>\n");
+        out.append("    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n");
+        out.append("    <title>").append(escapeHtml(title)).append("</title>\n");
+        out.append("    <style>\n");
+        out.append(getStyles());
+        out.append("    </style>\n");
+        out.append("</head>\n");
+        out.append("<body>\n");
     }
 
     private String getStyles() {
@@ -123,13 +212,16 @@ public class GameErrorReportGenerator {
         css.append(".animation-container { display: flex; flex-direction: column; align-items: center; background: #f8f9fa; ");
         css.append("padding: 15px; border-radius: 10px; }\n");
         css.append(".animation-title { font-weight: 700; color: #667eea; margin-bottom: 10px; font-size: 1.1em; text-align: center; }\n");
-        css.append(".chess-board-gif { width: 100%; max-width: 400px; height: auto; border-radius: 8px; ");
+        css.append(".chess-board { width: 100%; max-width: 400px; height: auto; border-radius: 8px; ");
         css.append("box-shadow: 0 4px 10px rgba(0,0,0,0.2); background: #fff; }\n");
         css.append(".move-notation { margin-top: 10px; font-family: 'Courier New', monospace; font-size: 0.95em; color: #555; text-align: center; }\n");
         css.append(".severity-badge { padding: 5px 15px; border-radius: 20px; font-weight: 600; font-size: 0.9em; }\n");
         css.append(".severity-BLUNDER { background: #ff4444; color: white; }\n");
         css.append(".severity-MISTAKE { background: #ff9800; color: white; }\n");
         css.append(".severity-INACCURACY { background: #ffc107; color: #333; }\n");
+        css.append(".table-note { color: #666; margin-bottom: 20px; }\n");
+        css.append(".pager { display: flex; justify-content: center; align-items: center; gap: 20px; margin: 20px 0; }\n");
+        css.append(".pager a { color: #667eea; font-weight: 600; text-decoration: none; }\n");
         css.append("section h2 { color: #667eea; margin-bottom: 20px; font-size: 1.8em; }\n");
         css.append("@media (max-width: 768px) { .charts-grid { grid-template-columns: 1fr; } ");
         css.append(".summary { grid-template-columns: 1fr; } header h1 { font-size: 2em; } ");
@@ -138,251 +230,262 @@ public class GameErrorReportGenerator {
         return css.toString();
     }
 
-    private String generateSummarySection() {
-        int totalErrors = errors.size();
-        int blunders = (int) errors.stream().filter(e -> e.severity() == ErrorSeverity.BLUNDER).count();
-        int mistakes = (int) errors.stream().filter(e -> e.severity() == ErrorSeverity.MISTAKE).count();
-        int inaccuracies = (int) errors.stream().filter(e -> e.severity() == ErrorSeverity.INACCURACY).count();
-
-        double avgCentipawnLoss = errors.stream()
-                .mapToDouble(GameError::centipawnLoss)
-                .average()
-                .orElse(0.0);
-
-        long uniqueGames = errors.stream()
-                .map(GameError::gameId)
-                .distinct()
-                .count();
-
-        StringBuilder html = new StringBuilder();
-        html.append("        <section class='summary'>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(totalErrors).append("</div><div class='label'>Errori Totali</div></div>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(blunders).append("</div><div class='label'>Blunder</div></div>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(mistakes).append("</div><div class='label'>Mistakes</div></div>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(inaccuracies).append("</div><div class='label'>Inaccuracies</div></div>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(String.format("%.0f", avgCentipawnLoss)).append("</div><div class='label'>CP Loss Medio</div></div>\n");
-        html.append("            <div class='summary-card'><div class='number'>").append(uniqueGames).append("</div><div class='label'>Partite Analizzate</div></div>\n");
-        html.append("        </section>\n");
-
-        return html.toString();
+    private void writeSummarySection(Writer out) throws IOException {
+        long totalErrors = aggregates.count();
+        long blunders = aggregates.count(ErrorSeverity.BLUNDER);
+        long mistakes = aggregates.count(ErrorSeverity.MISTAKE);
+        long inaccuracies = aggregates.count(ErrorSeverity.INACCURACY);
+        double avgCentipawnLoss = aggregates.averageCpLoss();
+        long uniqueGames = aggregates.gameCount();
+
+        out.append("        <section class='summary'>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.valueOf(totalErrors)).append("</div><div class='label'>Errori Totali</div></div>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.valueOf(blunders)).append("</div><div class='label'>Blunder</div></div>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.valueOf(mistakes)).append("</div><div class='label'>Mistakes</div></div>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.valueOf(inaccuracies)).append("</div><div class='label'>Inaccuracies</div></div>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.format("%.0f", avgCentipawnLoss)).append("</div><div class='label'>CP Loss Medio</div></div>\n");
+        out.append("            <div class='summary-card'><div class='number'>").append(String.valueOf(uniqueGames)).append("</div><div class='label'>Partite Analizzate</div></div>\n");
+        out.append("        </section>\n");
     }
 
-    private String generateChartsSection() {
-        StringBuilder html = new StringBuilder();
-        html.append("        <section class='charts-section'>\n");
-        html.append("            <h2>&#128202; Analisi Visuale</h2>\n");
-        html.append("            <div class='charts-grid'>\n");
-        html.append("                <div class='chart-container'><h3>Errori per Fase di Gioco</h3><div class='chart-wrapper'><canvas id='phaseChart'></canvas></div></div>\n");
-        html.append("                <div class='chart-container'><h3>Errori per Categoria</h3><div class='chart-wrapper'><canvas id='categoryChart'></canvas></div></div>\n");
-        html.append("                <div class='chart-container'><h3>Distribuzione Gravita</h3><div class='chart-wrapper'><canvas id='severityChart'></canvas></div></div>\n");
-        html.append("                <div class='chart-container'><h3>CP Loss per Gravita</h3><div class='chart-wrapper'><canvas id='cpLossChart'></canvas></div></div>\n");
-        html.append("            </div>\n");
-        html.append("        </section>\n");
-
-        return html.toString();
-    }
+    private void writeChartsSection(Writer out) throws IOException {
+        List<String> phaseLabels = new ArrayList<>();
+        List<Long> phaseCounts = new ArrayList<>();
+        for (GamePhase phase : GamePhase.values()) {
+            phaseLabels.add(phase.name());
+            phaseCounts.add(aggregates.count(phase));
+        }
+
+        List<String> categoryLabels = new ArrayList<>();
+        List<Long> categoryCounts = new ArrayList<>();
+        for (ErrorCategory category : ErrorCategory.values()) {
+            if (aggregates.count(category) > 0) {
+                categoryLabels.add(category.name().replace("_", " "));
+                categoryCounts.add(aggregates.count(category));
+            }
+        }
+
+        List<String> severityLabels = new ArrayList<>();
+        List<Long> severityCounts = new ArrayList<>();
+        List<Double> severityCpLoss = new ArrayList<>();
+        for (ErrorSeverity severity : SEVERITIES_BY_GRAVITY) {
+            severityLabels.add(severity.name());
+            severityCounts.add(aggregates.count(severity));
+            severityCpLoss.add(aggregates.averageCpLoss(severity));
+        }
 
-    private String generateStatisticsSection() {
-        StringBuilder html = new StringBuilder();
-        html.append("        <section class='stats-section'>\n");
-        html.append("            <h2>&#128200; Statistiche Dettagliate</h2>\n");
-        html.append("            <div class='stats-grid'>\n");
-        html.append(generatePhaseStatistics());
-        html.append(generateCategoryStatistics());
-        html.append(generateColorStatistics());
-        html.append("            </div>\n");
-        html.append("        </section>\n");
-
-        return html.toString();
+        out.append("        <section class='charts-section'>\n");
+        out.append("            <h2>&#128202; Analisi Visuale</h2>\n");
+        out.append("            <div class='charts-grid'>\n");
+
+        out.append("                <div class='chart-container'><h3>Errori per Fase di Gioco</h3><div class='chart-wrapper'>");
+        SvgCharts.pie(out, phaseLabels, phaseCounts, PHASE_COLORS, 0);
+        out.append("</div></div>\n");
+
+        out.append("                <div class='chart-container'><h3>Errori per Categoria</h3><div class='chart-wrapper'>");
+        SvgCharts.pie(out, categoryLabels, categoryCounts, CATEGORY_COLORS, 0.5);
+        out.append("</div></div>\n");
+
+        out.append("                <div class='chart-container'><h3>Distribuzione Gravita</h3><div class='chart-wrapper'>");
+        SvgCharts.bars(out, severityLabels, severityCounts, SEVERITY_COLORS, null);
+        out.append("</div></div>\n");
+
+        out.append("                <div class='chart-container'><h3>CP Loss per Gravita</h3><div class='chart-wrapper'>");
+        SvgCharts.bars(out, severityLabels, severityCpLoss, new String[]{"rgba(102,126,234,0.8)"}, "Centipawn Loss");
+        out.append("</div></div>\n");
+
+        out.append("            </div>\n");
+        out.append("        </section>\n");
     }
 
-    private String generatePhaseStatistics() {
-        Map<GamePhase, Long> phaseCount = errors.stream()
-                .collect(Collectors.groupingBy(GameError::phase, Collectors.counting()));
+    private void writeStatisticsSection(Writer out) throws IOException {
+        out.append("        <section class='stats-section'>\n");
+        out.append("            <h2>&#128200; Statistiche Dettagliate</h2>\n");
+        out.append("            <div class='stats-grid'>\n");
+        writePhaseStatistics(out);
+        writeCategoryStatistics(out);
+        writeColorStatistics(out);
+        out.append("            </div>\n");
+        out.append("        </section>\n");
+    }
 
-        StringBuilder html = new StringBuilder();
-        html.append("                <div class='stat-card'>\n");
-        html.append("                    <h4>&#127919; Errori per Fase</h4>\n");
+    private void writePhaseStatistics(Writer out) throws IOException {
+        out.append("                <div class='stat-card'>\n");
+        out.append("                    <h4>&#127919; Errori per Fase</h4>\n");
 
         for (GamePhase phase : GamePhase.values()) {
-            long count = phaseCount.getOrDefault(phase, 0L);
-            html.append("                    <div class='stat-item'>");
-            html.append("<span class='stat-label'>").append(phase.name()).append("</span>");
-            html.append("<span class='stat-value'>").append(count).append("</span>");
-            html.append("</div>\n");
+            long count = aggregates.count(phase);
+            out.append("                    <div class='stat-item'>");
+            out.append("<span class='stat-label'>").append(phase.name()).append("</span>");
+            out.append("<span class='stat-value'>").append(String.valueOf(count)).append("</span>");
+            out.append("</div>\n");
         }
 
-        html.append("                </div>\n");
-        return html.toString();
+        out.append("                </div>\n");
     }
 
-    private String generateCategoryStatistics() {
-        Map<ErrorCategory, Long> categoryCount = errors.stream()
-                .collect(Collectors.groupingBy(GameError::category, Collectors.counting()));
-
-        StringBuilder html = new StringBuilder();
-        html.append("                <div class='stat-card'>\n");
-        html.append("                    <h4>&#128269; Errori per Categoria</h4>\n");
+    private void writeCategoryStatistics(Writer out) throws IOException {
+        out.append("                <div class='stat-card'>\n");
+        out.append("                    <h4>&#128269; Errori per Categoria</h4>\n");
 
         for (ErrorCategory category : ErrorCategory.values()) {
-            long count = categoryCount.getOrDefault(category, 0L);
+            long count = aggregates.count(category);
             if (count > 0) {
-                html.append("                    <div class='stat-item'>");
-                html.append("<span class='stat-label'>").append(category.name().replace("_", " ")).append("</span>");
-                html.append("<span class='stat-value'>").append(count).append("</span>");
-                html.append("</div>\n");
+                out.append("                    <div class='stat-item'>");
+                out.append("<span class='stat-label'>").append(category.name().replace("_", " ")).append("</span>");
+                out.append("<span class='stat-value'>").append(String.valueOf(count)).append("</span>");
+                out.append("</div>\n");
             }
         }
 
-        html.append("                </div>\n");
-        return html.toString();
+        out.append("                </div>\n");
     }
 
-    private String generateColorStatistics() {
-        Map<Side, Long> colorCount = errors.stream()
-                .collect(Collectors.groupingBy(GameError::playerColor, Collectors.counting()));
-
-        Map<Side, Double> avgCpLoss = errors.stream()
-                .collect(Collectors.groupingBy(
-                        GameError::playerColor,
-                        Collectors.averagingDouble(GameError::centipawnLoss)
-                ));
-
-        StringBuilder html = new StringBuilder();
-        html.append("                <div class='stat-card'>\n");
-        html.append("                    <h4>&#9899;&#9898; Statistiche per Colore</h4>\n");
+    private void writeColorStatistics(Writer out) throws IOException {
+        out.append("                <div class='stat-card'>\n");
+        out.append("                    <h4>&#9899;&#9898; Statistiche per Colore</h4>\n");
 
         for (Side side : Side.values()) {
             if (side == Side.WHITE || side == Side.BLACK) {
-                long count = colorCount.getOrDefault(side, 0L);
-                double avgLoss = avgCpLoss.getOrDefault(side, 0.0);
-
-                html.append("                    <div class='stat-item'>");
-                html.append("<span class='stat-label'>").append(side.name()).append(" - Errori</span>");
-                html.append("<span class='stat-value'>").append(count).append("</span>");
-                html.append("</div>\n");
-                html.append("                    <div class='stat-item'>");
-                html.append("<span class='stat-label'>").append(side.name()).append(" - CP Loss Medio</span>");
-                html.append("<span class='stat-value'>").append(String.format("%.1f", avgLoss)).append("</span>");
-                html.append("</div>\n");
+                long count = aggregates.count(side);
+                double avgLoss = aggregates.averageCpLoss(side);
+
+                out.append("                    <div class='stat-item'>");
+                out.append("<span class='stat-label'>").append(side.name()).append(" - Errori</span>");
+                out.append("<span class='stat-value'>").append(String.valueOf(count)).append("</span>");
+                out.append("</div>\n");
+                out.append("                    <div class='stat-item'>");
+                out.append("<span class='stat-label'>").append(side.name()).append(" - CP Loss Medio</span>");
+                out.append("<span class='stat-value'>").append(String.format("%.1f", avgLoss)).append("</span>");
+                out.append("</div>\n");
             }
         }
 
-        html.append("                </div>\n");
-        return html.toString();
+        out.append("                </div>\n");
     }
 
-    private String generateErrorsTableSection() {
-        StringBuilder html = new StringBuilder();
-        html.append("        <section class='errors-table-section'>\n");
-        html.append("            <h2>&#128269; Dettaglio Errori</h2>\n");
+    private void writeErrorsTableSection(Writer out, List<GameError> sortedErrors, int page, int pages,
+                                         String reportName) throws IOException {
+        out.append("        <section class='errors-table-section'>\n");
+        out.append("            <h2>&#128269; Dettaglio Errori</h2>\n");
+        if (topErrors.seen() > topErrors.size()) {
+            out.append("            <p class='table-note'>I ").append(String.valueOf(topErrors.k()))
+                    .append(" errori peggiori per gravita, categoria e fase: ").append(String.valueOf(topErrors.size()))
+                    .append(" di ").append(String.valueOf(topErrors.seen())).append("</p>\n");
+        }
+
+        writePager(out, page, pages, reportName);
+
+        List<GameError> pageErrors = sortedErrors.subList((page - 1) * pageSize, Math.min(sortedErrors.size(), page * pageSize));
 
-        List<GameError> sortedErrors = errors.stream()
-                .sorted(Comparator.comparingDouble(GameError::centipawnLoss).reversed())
-                .collect(Collectors.toList());
+        // the positions of the page, each defined once however many errors show it
+        BoardDiagrams diagrams = new BoardDiagrams();
+        for (GameError error : pageErrors) {
+            boolean blackBottom = error.playerColor() == Side.BLACK;
+            diagrams.add(error.fenBefore(), blackBottom);
+            diagrams.add(error.fenAfter(), blackBottom);
+        }
+        diagrams.writeDefinitions(out);
 
-        for (GameError error : sortedErrors) {
-            html.append("            <div class='error-card'>\n");
-            html.append("                <div class='error-header'>\n");
-            html.append("                    <div><strong>Mossa ").append(error.moveNumber()).append("</strong> - ");
-            html.append(error.playerColor().name()).append(" | ");
-            html.append(error.openingName() != null ? escapeHtml(error.openingName()) : "Unknown Opening");
-            html.append("</div>\n");
-            html.append("                    <span class='severity-badge severity-").append(error.severity().name()).append("'>");
-            html.append(error.severity().name()).append("</span>\n");
-            html.append("                </div>\n");
-            html.append("                <div class='error-body'>\n");
+        for (GameError error : pageErrors) {
+            out.append("            <div class='error-card'>\n");
+            out.append("                <div class='error-header'>\n");
+            out.append("                    <div><strong>Mossa ").append(String.valueOf(error.moveNumber())).append("</strong> - ");
+            out.append(error.playerColor().name()).append(" | ");
+            out.append(error.openingName() != null ? escapeHtml(error.openingName()) : "Unknown Opening");
+            out.append("</div>\n");
+            out.append("                    <span class='severity-badge severity-").append(error.severity().name()).append("'>");
+            out.append(error.severity().name()).append("</span>\n");
+            out.append("                </div>\n");
+            out.append("                <div class='error-body'>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Fase</span>");
-            html.append("<span class='error-info-value'>").append(error.phase().name()).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Fase</span>");
+            out.append("<span class='error-info-value'>").append(error.phase().name()).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Categoria</span>");
-            html.append("<span class='error-info-value'>").append(error.category().name().replace("_", " ")).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Categoria</span>");
+            out.append("<span class='error-info-value'>").append(error.category().name().replace("_", " ")).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>CP Loss</span>");
-            html.append("<span class='error-info-value'>").append(String.format("%.0f", error.centipawnLoss())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>CP Loss</span>");
+            out.append("<span class='error-info-value'>").append(String.format("%.0f", error.centipawnLoss())).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Mossa Giocata</span>");
-            html.append("<span class='error-info-value'>").append(escapeHtml(error.playedMoveSan())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Mossa Giocata</span>");
+            out.append("<span class='error-info-value'>").append(escapeHtml(error.playedMoveSan())).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Mossa Migliore</span>");
-            html.append("<span class='error-info-value'>").append(escapeHtml(error.bestMoveUci())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Mossa Migliore</span>");
+            out.append("<span class='error-info-value'>").append(escapeHtml(error.bestMoveUci())).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Eval Prima</span>");
-            html.append("<span class='error-info-value'>").append(String.format("%.2f", error.evalBefore())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Eval Prima</span>");
+            out.append("<span class='error-info-value'>").append(String.format("%.2f", error.evalBefore())).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Eval Dopo</span>");
-            html.append("<span class='error-info-value'>").append(String.format("%.2f", error.evalAfter())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Eval Dopo</span>");
+            out.append("<span class='error-info-value'>").append(String.format("%.2f", error.evalAfter())).append("</span></div>\n");
 
-            html.append("                    <div class='error-info'><span class='error-info-label'>Game ID</span>");
-            html.append("<span class='error-info-value'>").append(escapeHtml(error.gameId())).append("</span></div>\n");
+            out.append("                    <div class='error-info'><span class='error-info-label'>Game ID</span>");
+            out.append("<span class='error-info-value'>").append(escapeHtml(error.gameId())).append("</span></div>\n");
 
-            html.append(generateChessAnimations(error));
+            writeBoards(out, error, diagrams);
 
-            html.append("                </div>\n");
-            html.append("            </div>\n");
+            out.append("                </div>\n");
+            out.append("            </div>\n");
         }
 
-        html.append("        </section>\n");
-        return html.toString();
+        writePager(out, page, pages, reportName);
+        out.append("        </section>\n");
     }
 
-    private String generateChessAnimations(GameError error) {
-        StringBuilder html = new StringBuilder();
-
-        html.append("                    <div class='chess-animations'>\n");
-
-        String playedMoveGif = generateLichessGifUrl(
-                error.fenBefore(),
-                error.playedMoveUci(),
-                error.playerColor().name().toLowerCase()
-        );
-
-        html.append("                        <div class='animation-container'>\n");
-        html.append("                            <div class='animation-title'>&#10060; Mossa Giocata (Errore)</div>\n");
-        html.append("                            <img src='").append(playedMoveGif).append("' ");
-        html.append("alt='Mossa giocata' class='chess-board-gif' loading='lazy'>\n");
-        html.append("                            <div class='move-notation'>Mossa: <strong>");
-        html.append(escapeHtml(error.playedMoveSan())).append("</strong> (");
-        html.append(escapeHtml(error.playedMoveUci())).append(")</div>\n");
-        html.append("                        </div>\n");
-
-        String bestMoveGif = generateLichessGifUrl(
-                error.fenBefore(),
-                error.bestMoveUci(),
-                error.playerColor().name().toLowerCase()
-        );
-
-        html.append("                        <div class='animation-container'>\n");
-        html.append("                            <div class='animation-title'>&#9989; Mossa Migliore</div>\n");
-        html.append("                            <img src='").append(bestMoveGif).append("' ");
-        html.append("alt='Mossa migliore' class='chess-board-gif' loading='lazy'>\n");
-        html.append("                            <div class='move-notation'>Mossa: <strong>");
-        html.append(escapeHtml(error.bestMoveUci())).append("</strong> (CP Loss evitata: ");
-        html.append(String.format("%.0f", error.centipawnLoss())).append(")</div>\n");
-        html.append("                        </div>\n");
-
-        html.append("                    </div>\n");
-
-        return html.toString();
+    private void writePager(Writer out, int page, int pages, String reportName) throws IOException {
+        if (pages < 2) return;
+
+        out.append("            <nav class='pager'>");
+        if (page > 1) {
+            out.append("<a href='").append(pageLink(page - 1, page, reportName)).append("'>&#8249; Precedente</a>");
+        }
+        out.append("<span>Pagina ").append(String.valueOf(page)).append(" di ").append(String.valueOf(pages)).append("</span>");
+        if (page < pages) {
+            out.append("<a href='").append(pageLink(page + 1, page, reportName)).append("'>Successiva &#8250;</a>");
+        }
+        out.append("</nav>\n");
     }
 
-    private String generateLichessGifUrl(String fen, String move, String orientation) {
-        try {
-            String encodedFen = URLEncoder.encode(fen, "UTF-8");
-            return String.format(
-                    "https://lichess1.org/export/fen.gif?fen=%s&lastMove=%s&orientation=%s&theme=brown&piece=cburnett",
-                    encodedFen,
-                    move,
-                    orientation
-            );
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "https://via.placeholder.com/400x400.png?text=Errore+caricamento+GIF";
+    // page 1 is the report itself; the other pages sit together in the page directory
+    private static String pageLink(int target, int from, String reportName) {
+        if (target == 1) {
+            return "../" + escapeHtml(reportName);
         }
+        String page = pageFileName(target);
+        return from == 1 ? escapeHtml(pageDirectory(Path.of(reportName)).getFileName().toString()) + "/" + page : page;
+    }
+
+    private void writeBoards(Writer out, GameError error, BoardDiagrams diagrams) throws IOException {
+        boolean blackBottom = error.playerColor() == Side.BLACK;
+        String fenAfter = error.fenAfter() != null ? error.fenAfter() : error.fenBefore();
+
+        out.append("                    <div class='chess-animations'>\n");
+
+        out.append("                        <div class='animation-container'>\n");
+        out.append("                            <div class='animation-title'>&#10060; Mossa Giocata (Errore)</div>\n");
+        out.append("                            ");
+        diagrams.writeDiagram(out, fenAfter, blackBottom, error.playedMoveUci(), null);
+        out.append("\n");
+        out.append("                            <div class='move-notation'>Mossa: <strong>");
+        out.append(escapeHtml(error.playedMoveSan())).append("</strong> (");
+        out.append(escapeHtml(error.playedMoveUci())).append(")</div>\n");
+        out.append("                        </div>\n");
+
+        out.append("                        <div class='animation-container'>\n");
+        out.append("                            <div class='animation-title'>&#9989; Mossa Migliore</div>\n");
+        out.append("                            ");
+        diagrams.writeDiagram(out, error.fenBefore(), blackBottom, null, error.bestMoveUci());
+        out.append("\n");
+        out.append("                            <div class='move-notation'>Mossa: <strong>");
+        out.append(escapeHtml(error.bestMoveUci())).append("</strong> (CP Loss evitata: ");
+        out.append(String.format("%.0f", error.centipawnLoss())).append(")</div>\n");
+        out.append("                        </div>\n");
+
+        out.append("                    </div>\n");
     }
 
-    private String escapeHtml(String text) {
+    private static String escapeHtml(String text) {
         if (text == null) return "";
         return text.replace("&", "&amp;")
                 .replace("<", "&lt;")
@@ -390,95 +493,4 @@ public class GameErrorReportGenerator {
                 .replace("\"", "&quot;")
                 .replace("'", "&#39;");
     }
-
-    private String getChartScripts() {
-        Map<GamePhase, Long> phaseData = errors.stream()
-                .collect(Collectors.groupingBy(GameError::phase, Collectors.counting()));
-
-        Map<ErrorCategory, Long> categoryData = errors.stream()
-                .collect(Collectors.groupingBy(GameError::category, Collectors.counting()));
-
-        Map<ErrorSeverity, Long> severityData = errors.stream()
-                .collect(Collectors.groupingBy(GameError::severity, Collectors.counting()));
-
-        Map<ErrorSeverity, Double> cpLossData = errors.stream()
-                .collect(Collectors.groupingBy(
-                        GameError::severity,
-                        Collectors.averagingDouble(GameError::centipawnLoss)
-                ));
-
-        StringBuilder js = new StringBuilder();
-        js.append("Chart.defaults.font.family = '-apple-system, BlinkMacSystemFont, \"Segoe UI\", Roboto, sans-serif';\n");
-        js.append("Chart.defaults.plugins.legend.display = true;\n");
-        js.append("Chart.defaults.plugins.legend.position = 'bottom';\n\n");
-
-        js.append("const phaseCtx = document.getElementById('phaseChart').getContext('2d');\n");
-        js.append("new Chart(phaseCtx, {\n");
-        js.append("    type: 'pie',\n");
-        js.append("    data: {\n");
-        js.append("        labels: ").append(toJsonArray(phaseData.keySet().stream().map(Enum::name).collect(Collectors.toList()))).append(",\n");
-        js.append("        datasets: [{ data: ").append(toJsonArray(phaseData.values())).append(",\n");
-        js.append("            backgroundColor: ['rgba(102,126,234,0.8)','rgba(118,75,162,0.8)','rgba(255,152,0,0.8)'],\n");
-        js.append("            borderWidth: 2, borderColor: '#fff' }]\n");
-        js.append("    },\n");
-        js.append("    options: { responsive: true, maintainAspectRatio: false,\n");
-        js.append("        plugins: { legend: { position: 'bottom', labels: { padding: 15, font: { size: 12 } } } } }\n");
-        js.append("});\n\n");
-
-        js.append("const categoryCtx = document.getElementById('categoryChart').getContext('2d');\n");
-        js.append("new Chart(categoryCtx, {\n");
-        js.append("    type: 'doughnut',\n");
-        js.append("    data: {\n");
-        js.append("        labels: ").append(toJsonArray(categoryData.keySet().stream().map(c -> c.name().replace("_"," ")).collect(Collectors.toList()))).append(",\n");
-        js.append("        datasets: [{ data: ").append(toJsonArray(categoryData.values())).append(",\n");
-        js.append("            backgroundColor: ['rgba(255,99,132,0.8)','rgba(54,162,235,0.8)','rgba(255,206,86,0.8)',\n");
-        js.append("                'rgba(75,192,192,0.8)','rgba(153,102,255,0.8)','rgba(255,159,64,0.8)','rgba(199,199,199,0.8)'],\n");
-        js.append("            borderWidth: 2, borderColor: '#fff' }]\n");
-        js.append("    },\n");
-        js.append("    options: { responsive: true, maintainAspectRatio: false,\n");
-        js.append("        plugins: { legend: { position: 'bottom', labels: { padding: 10, font: { size: 11 } } } } }\n");
-        js.append("});\n\n");
-
-        js.append("const severityCtx = document.getElementById('severityChart').getContext('2d');\n");
-        js.append("new Chart(severityCtx, {\n");
-        js.append("    type: 'bar',\n");
-        js.append("    data: {\n");
-        js.append("        labels: ").append(toJsonArray(severityData.keySet().stream().map(Enum::name).collect(Collectors.toList()))).append(",\n");
-        js.append("        datasets: [{ label: 'Numero di Errori', data: ").append(toJsonArray(severityData.values())).append(",\n");
-        js.append("            backgroundColor: ['rgba(255,68,68,0.8)','rgba(255,152,0,0.8)','rgba(255,193,7,0.8)'],\n");
-        js.append("            borderWidth: 2,\n");
-        js.append("            borderColor: ['rgb(255,68,68)','rgb(255,152,0)','rgb(255,193,7)'] }]\n");
-        js.append("    },\n");
-        js.append("    options: { responsive: true, maintainAspectRatio: false,\n");
-        js.append("        scales: { y: { beginAtZero: true, ticks: { stepSize: 1 } } },\n");
-        js.append("        plugins: { legend: { display: false } } }\n");
-        js.append("});\n\n");
-
-        js.append("const cpLossCtx = document.getElementById('cpLossChart').getContext('2d');\n");
-        js.append("new Chart(cpLossCtx, {\n");
-        js.append("    type: 'bar',\n");
-        js.append("    data: {\n");
-        js.append("        labels: ").append(toJsonArray(cpLossData.keySet().stream().map(Enum::name).collect(Collectors.toList()))).append(",\n");
-        js.append("        datasets: [{ label: 'CP Loss Medio', data: ").append(toJsonArray(cpLossData.values())).append(",\n");
-        js.append("            backgroundColor: 'rgba(102,126,234,0.8)',\n");
-        js.append("            borderColor: 'rgb(102,126,234)', borderWidth: 2 }]\n");
-        js.append("    },\n");
-        js.append("    options: { responsive: true, maintainAspectRatio: false,\n");
-        js.append("        scales: { y: { beginAtZero: true, title: { display: true, text: 'Centipawn Loss' } } },\n");
-        js.append("        plugins: { legend: { display: false } } }\n");
-        js.append("});\n");
-
-        return js.toString();
-    }
-
-    private String toJsonArray(Collection<?> collection) {
-        return "[" + collection.stream()
-                .map(item -> {
-                    if (item instanceof String) {
-                        return "'" + item + "'";
-                    }
-                    return String.valueOf(item);
-                })
-                .collect(Collectors.joining(",")) + "]";
-    }
-}
\ No newline at end of file
+}
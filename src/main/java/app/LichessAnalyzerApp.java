@@ -1,73 +1,166 @@
 package app;
 
+import analysis.AdaptiveSearch;
 import analysis.AdvancedErrorClassifier;
-import analysis.GameAnalysisService;
+import analysis.AnalysisPipeline;
+import analysis.EngineConfig;
+import analysis.EnginePool;
+import analysis.ErrorAggregates;
+import analysis.EvaluationCache;
+import analysis.LiveErrorAggregates;
+import analysis.PositionTable;
+import analysis.SearchFilter;
+import analysis.SearchLimit;
 import analysis.StockfishClient;
+import analysis.TopErrors;
 import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
 import domain.GameError;
 import domain.LichessGame;
+import domain.enums.ErrorSeverity;
+import fetch.IoExecutors;
 import fetch.LichessFetcher;
+import fetch.LichessOpeningExplorer;
+import fetch.OpeningBook;
+import store.CheckpointStore;
+import store.WatermarkStore;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class LichessAnalyzerApp {
 
     private static final String USERNAME = "FranckReda96";
+    private static final Path EVALUATION_CACHE_FILE = Path.of("eval-cache.bin");
+    private static final Path OPENINGS_DIRECTORY = Path.of("openings");
+    // one file per user: completed games are kept there and skipped when the app is run again
+    private static final Path CHECKPOINT_FILE = Path.of("checkpoints", USERNAME.toLowerCase() + ".ndjson");
+    // newest game up to which each user is fully analyzed: later runs only fetch the games played since
+    private static final Path WATERMARK_FILE = Path.of("checkpoints", "watermarks.json");
+    private static final int FIRST_RUN_GAMES = 10;
+    // -Danalyzer.virtualThreads=false runs network calls on a fixed pool of platform threads instead
+    private static final boolean VIRTUAL_THREADS = Boolean.parseBoolean(System.getProperty("analyzer.virtualThreads", "true"));
+    // -Danalyzer.report.topK: errors listed in the report for each severity, category and phase
+    private static final int REPORT_TOP_K = Integer.getInteger("analyzer.report.topK", TopErrors.DEFAULT_K);
+    private static final EngineConfig ENGINE_CONFIG = engineConfig();
+    // -Danalyzer.engine.triageDepth=N searches every ply at depth N first and only suspect plies at the full limit
+    private static final AdaptiveSearch ADAPTIVE_SEARCH = adaptiveSearch();
+    // positions shared by the games of this run are searched by one engine only
+    private static final PositionTable POSITION_TABLE = new PositionTable();
 
     static void main() {
 
+        // -Danalyzer.filter.rules=forced,book picks the searches skipped; adding decided also skips positions beyond
+        // -Danalyzer.filter.decidedCp, at the cost of the errors made in them
+        SearchFilter searchFilter;
+        try {
+            searchFilter = searchFilter();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
         LichessFetcher fetcher = new LichessFetcher();
 
+        WatermarkStore watermarkStore;
         try {
-            List<LichessGame> games = fetcher.fetchGamesByUser(USERNAME, 10);
-            System.out.println("Fetched " + games.size() + " games");
+            watermarkStore = WatermarkStore.open(WATERMARK_FILE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Map<String, Long> fetchedCreatedAt = new ConcurrentHashMap<>();
 
+        try (ExecutorService ioExecutor = IoExecutors.create(VIRTUAL_THREADS);
+             EvaluationCache evaluationCache = EvaluationCache.open(EVALUATION_CACHE_FILE);
+             CheckpointStore checkpointStore = CheckpointStore.open(CHECKPOINT_FILE, REPORT_TOP_K);
+             EnginePool enginePool = createEnginePool(ioExecutor, evaluationCache, searchFilter);
+             Stream<LichessGame> gameStream = fetchNewGames(fetcher, watermarkStore)) {
+            // the errors of this run are only kept to compare the two search tiers; the report needs just the worst ones
             List<GameError> allErrors = new ArrayList<>();
-            ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
-            List<Future<?>> futures = new ArrayList<>();
-
-            for (LichessGame game : games) {
+            List<GameError> allTriageErrors = new ArrayList<>();
+            // earlier runs count through the summary the store keeps, never through their games
+            LiveErrorAggregates aggregates = new LiveErrorAggregates();
+            aggregates.add(checkpointStore.completedAggregates());
+            TopErrors topErrors = checkpointStore.completedTopErrors();
 
-                futures.add(executor.submit(() -> {
+            if (checkpointStore.completedCount() > 0) {
+                System.out.println("Resuming: " + checkpointStore.completedCount() + " games already analyzed in "
+                        + checkpointStore.getFile());
+            }
 
-                    StockfishClient stockfish = new StockfishClient();
+            AnalysisPipeline pipeline = new AnalysisPipeline(enginePool, new AdvancedErrorClassifier(), ADAPTIVE_SEARCH,
+                    game -> determinePlayerSide(game, USERNAME), AnalysisPipeline.Config.defaults(), ioExecutor, aggregates);
 
+            // analysis starts on the first game while the rest is still downloading
+            Stream<LichessGame> newGames = gameStream
+                    .peek(game -> fetchedCreatedAt.put(game.gameId(), game.createdAt()))
+                    .filter(game -> !checkpointStore.isTerminal(game.gameId()));
+            boolean fetchedAll = true;
+            try {
+                pipeline.run(newGames, analysis -> {
+                    collectErrors(analysis, allErrors, allTriageErrors);
+                    topErrors.addAll(analysis.errors());
                     try {
-                        stockfish.start();
-
-                        Side side = determinePlayerSide(game, USERNAME);
-                        if (side == null) {
-                            System.out.println("Skipping game: user not found");
-                            return;
-                        }
-
-                        GameAnalysisService analysisService = new GameAnalysisService(stockfish, new AdvancedErrorClassifier());
+                        checkpointStore.append(analysis);
+                    } catch (IOException e) {
+                        System.err.println("Could not checkpoint game " + analysis.gameId() + ": " + e.getMessage());
+                    }
+                    printProgress(analysis, aggregates);
+                }, (gameId, reason) -> {
+                    try {
+                        checkpointStore.markFailed(gameId, reason);
+                    } catch (IOException e) {
+                        System.err.println("Could not checkpoint game " + gameId + ": " + e.getMessage());
+                    }
+                });
+            } catch (RuntimeException e) {
+                // games are streamed newest first: the ones never fetched are older than those analyzed
+                System.err.println("Fetching stopped early, the watermark is left as it was: " + e.getMessage());
+                fetchedAll = false;
+            }
 
-                        var analysis = analysisService.analyzeGame(game, 17, side);
+            for (AnalysisPipeline.StageStats stats : pipeline.stageStats()) {
+                System.out.printf("Stage %-9s workers=%d processed=%d failed=%d busy=%dms%n",
+                        stats.stage(), stats.workers(), stats.processed(), stats.failed(), stats.busyMillis());
+            }
 
-                        synchronized (allErrors) {
-                            allErrors.addAll(analysis.errors());
-                        }
+            if (fetchedAll) {
+                watermarkStore.advance(USERNAME, fetchedCreatedAt, checkpointStore::isTerminal)
+                        .ifPresent(watermark -> System.out.println("Analyzed up to game " + watermark.gameId()
+                                + " of " + Instant.ofEpochMilli(watermark.createdAt())));
+            }
 
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    } finally {
-                        stockfish.stop();
-                    }
-                }));
+            if (ADAPTIVE_SEARCH.isTwoTier()) {
+                printTierComparison(pipeline, allTriageErrors, allErrors);
             }
 
-            for (Future<?> future : futures) {
-                future.get();
+            System.out.println("Search filter (" + searchFilter + "): " + searchFilter.savedSearches() + " searches skipped");
+            for (SearchFilter.Rule rule : SearchFilter.Rule.values()) {
+                System.out.printf("  %-8s %d%n", rule, searchFilter.savedSearches(rule));
             }
 
-            executor.shutdown();
+            System.out.println("Shared positions: " + POSITION_TABLE.getSearches() + " searches, "
+                    + POSITION_TABLE.getAvoidedSearches() + " avoided (" + POSITION_TABLE.getAwaited()
+                    + " waited on another engine, " + POSITION_TABLE.getReused() + " reused)");
 
-            GameErrorReportGenerator reportGenerator = new GameErrorReportGenerator(allErrors);
+            System.out.println("Evaluation cache: " + evaluationCache.getHits() + " hits, "
+                    + evaluationCache.getMisses() + " misses");
+
+            GameErrorReportGenerator reportGenerator = new GameErrorReportGenerator(aggregates.snapshot(),
+                    topErrors, GameErrorReportGenerator.DEFAULT_PAGE_SIZE);
             reportGenerator.generateAndOpenHtmlReport();
 
         } catch (Exception e) {
@@ -75,6 +168,123 @@ public class LichessAnalyzerApp {
         }
     }
 
+    private static Stream<LichessGame> fetchNewGames(LichessFetcher fetcher, WatermarkStore watermarkStore) throws Exception {
+        Optional<WatermarkStore.Watermark> watermark = watermarkStore.get(USERNAME);
+        if (watermark.isEmpty()) {
+            return fetcher.streamGamesByUser(USERNAME, FIRST_RUN_GAMES);
+        }
+        System.out.println("Fetching games played after " + Instant.ofEpochMilli(watermark.get().createdAt()));
+        return fetcher.streamGamesSince(USERNAME, watermark.get().createdAt() + 1);
+    }
+
+    private static EnginePool createEnginePool(ExecutorService ioExecutor, EvaluationCache evaluationCache,
+                                               SearchFilter searchFilter) {
+        LichessOpeningExplorer openingExplorer = createOpeningExplorer(ioExecutor);
+        EnginePool enginePool = EnginePool.sizedToAvailableCores(ENGINE_CONFIG,
+                () -> new StockfishClient(ENGINE_CONFIG, openingExplorer, evaluationCache, searchFilter, POSITION_TABLE));
+        System.out.println("Started " + enginePool.size() + " engines x " + ENGINE_CONFIG.threads()
+                + " threads, hash " + ENGINE_CONFIG.hashMb() + " MB, " + ENGINE_CONFIG.searchLimit());
+        return enginePool;
+    }
+
+    /**
+     * Engine settings from -Danalyzer.engine.* properties: threads, hash (MB), multiPv, and one of
+     * depth, nodes or movetime (ms) to limit each search.
+     */
+    private static EngineConfig engineConfig() {
+        EngineConfig defaults = EngineConfig.defaults();
+
+        SearchLimit searchLimit = defaults.searchLimit();
+        if (System.getProperty("analyzer.engine.nodes") != null) {
+            searchLimit = SearchLimit.nodes(Long.getLong("analyzer.engine.nodes"));
+        } else if (System.getProperty("analyzer.engine.movetime") != null) {
+            searchLimit = SearchLimit.moveTimeMillis(Long.getLong("analyzer.engine.movetime"));
+        } else if (System.getProperty("analyzer.engine.depth") != null) {
+            searchLimit = SearchLimit.depth(Integer.getInteger("analyzer.engine.depth"));
+        }
+
+        return new EngineConfig(
+                System.getProperty("analyzer.engine.command", defaults.command()),
+                Integer.getInteger("analyzer.engine.threads", defaults.threads()),
+                Integer.getInteger("analyzer.engine.hash", defaults.hashMb()),
+                Integer.getInteger("analyzer.engine.multiPv", defaults.multiPv()),
+                searchLimit);
+    }
+
+    private static AdaptiveSearch adaptiveSearch() {
+        Integer triageDepth = Integer.getInteger("analyzer.engine.triageDepth");
+        if (triageDepth == null) {
+            return AdaptiveSearch.singleTier(ENGINE_CONFIG.searchLimit());
+        }
+        return AdaptiveSearch.twoTier(SearchLimit.depth(triageDepth), ENGINE_CONFIG.searchLimit());
+    }
+
+    private static SearchFilter searchFilter() {
+        Set<SearchFilter.Rule> rules = EnumSet.noneOf(SearchFilter.Rule.class);
+        for (String rule : System.getProperty("analyzer.filter.rules", "forced,book").split(",")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            try {
+                rules.add(SearchFilter.Rule.valueOf(rule.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown search filter rule in analyzer.filter.rules: " + rule.trim()
+                        + ", expected some of " + Arrays.toString(SearchFilter.Rule.values()));
+            }
+        }
+        return new SearchFilter(rules, Integer.getInteger("analyzer.filter.decidedCp", 1_000));
+    }
+
+    private static void collectErrors(AnalysisResult analysis, List<GameError> errors, List<GameError> triageErrors) {
+        if (ADAPTIVE_SEARCH.isTwoTier()) {
+            errors.addAll(analysis.errors());
+            triageErrors.addAll(analysis.triageErrors());
+        }
+    }
+
+    // read from the running counters: a snapshot per game would merge every stripe each time
+    private static void printProgress(AnalysisResult analysis, LiveErrorAggregates totals) {
+        System.out.printf("Game %s: %d errors | %d games, %d errors (%d blunders, %d mistakes, %d inaccuracies), "
+                        + "avg CP loss %.0f%n", analysis.gameId(), analysis.errors().size(), totals.games(),
+                totals.errors(), totals.errors(ErrorSeverity.BLUNDER), totals.errors(ErrorSeverity.MISTAKE),
+                totals.errors(ErrorSeverity.INACCURACY), totals.averageCpLoss());
+    }
+
+    private static void printTierComparison(AnalysisPipeline pipeline, List<GameError> triageErrors, List<GameError> errors) {
+        System.out.println("Adaptive search (" + ADAPTIVE_SEARCH + "): " + pipeline.researchedPlies() + " of "
+                + pipeline.evaluatedPlies() + " plies searched again");
+
+        ErrorAggregates triageCounts = ErrorAggregates.of(triageErrors);
+        ErrorAggregates fullCounts = ErrorAggregates.of(errors);
+
+        Set<String> fullKeys = errors.stream().map(LichessAnalyzerApp::errorKey).collect(Collectors.toSet());
+        long agreeing = triageErrors.stream().map(LichessAnalyzerApp::errorKey).filter(fullKeys::contains).count();
+
+        for (ErrorSeverity severity : ErrorSeverity.values()) {
+            System.out.printf("  %-10s triage=%d full=%d%n", severity,
+                    triageCounts.count(severity), fullCounts.count(severity));
+        }
+        System.out.println("  same move and severity in both tiers: " + agreeing + " of " + errors.size());
+    }
+
+    private static String errorKey(GameError error) {
+        return error.gameId() + "/" + error.moveNumber() + "/" + error.severity();
+    }
+
+    private static LichessOpeningExplorer createOpeningExplorer(ExecutorService ioExecutor) {
+        try {
+            OpeningBook openingBook = OpeningBook.load(OPENINGS_DIRECTORY);
+            if (!openingBook.isEmpty()) {
+                System.out.println("Loaded " + openingBook.size() + " opening book positions");
+                return new LichessOpeningExplorer(openingBook, false, ioExecutor);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load the opening book: " + e.getMessage());
+        }
+        // no local dataset: fall back to the remote lichess explorer
+        return new LichessOpeningExplorer(OpeningBook.empty(), true, ioExecutor);
+    }
+
     private static Side determinePlayerSide(LichessGame game, String username) {
         if (username.equalsIgnoreCase(game.white())) return Side.WHITE;
         if (username.equalsIgnoreCase(game.black())) return Side.BLACK;
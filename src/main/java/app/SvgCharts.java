@@ -0,0 +1,142 @@
+package app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pie, doughnut and bar charts drawn as inline SVG while the report is written, in place of a
+ * charting script loaded at view time.
+ */
+final class SvgCharts {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+
+    private SvgCharts() {
+    }
+
+    /**
+     * Slices in the order given, starting at twelve o'clock, with a legend of labels and values
+     * on the right; {@code hole} is the inner radius as a fraction of the outer one, 0 for a pie.
+     */
+    static void pie(Writer out, List<String> labels, List<? extends Number> values, String[] colors, double hole)
+            throws IOException {
+        double total = 0;
+        for (Number value : values) {
+            total += value.doubleValue();
+        }
+
+        double cx = 105;
+        double cy = HEIGHT / 2.0;
+        double r = 95;
+
+        open(out);
+        if (total <= 0) {
+            out.append("<circle cx='").append(number(cx)).append("' cy='").append(number(cy)).append("' r='")
+                    .append(number(r)).append("' fill='#eee'/>");
+        }
+
+        double angle = 0;
+        for (int i = 0; i < values.size() && total > 0; i++) {
+            double value = values.get(i).doubleValue();
+            if (value <= 0) continue;
+            String color = colors[i % colors.length];
+
+            if (value >= total) {
+                out.append("<circle cx='").append(number(cx)).append("' cy='").append(number(cy)).append("' r='")
+                        .append(number(r)).append("' fill='").append(color).append("'/>");
+                break;
+            }
+
+            double end = angle + value / total * 2 * Math.PI;
+            out.append("<path d='M").append(number(cx)).append(',').append(number(cy))
+                    .append(" L").append(number(cx + r * Math.sin(angle))).append(',').append(number(cy - r * Math.cos(angle)))
+                    .append(" A").append(number(r)).append(',').append(number(r)).append(" 0 ")
+                    .append(end - angle > Math.PI ? '1' : '0').append(",1 ")
+                    .append(number(cx + r * Math.sin(end))).append(',').append(number(cy - r * Math.cos(end)))
+                    .append(" Z' fill='").append(color).append("' stroke='#fff' stroke-width='2'/>");
+            angle = end;
+        }
+
+        if (hole > 0) {
+            out.append("<circle cx='").append(number(cx)).append("' cy='").append(number(cy)).append("' r='")
+                    .append(number(r * hole)).append("' fill='#fff'/>");
+        }
+
+        for (int i = 0; i < labels.size(); i++) {
+            double y = cy - labels.size() * 12 + i * 24 + 6;
+            out.append("<rect x='215' y='").append(number(y - 11)).append("' width='14' height='14' rx='3' fill='")
+                    .append(colors[i % colors.length]).append("'/>");
+            out.append("<text x='235' y='").append(number(y)).append("' font-size='11' fill='#555'>")
+                    .append(label(labels.get(i))).append(" (").append(format(values.get(i))).append(")</text>");
+        }
+        close(out);
+    }
+
+    /**
+     * Vertical bars from zero, each with its value above it and its label below.
+     */
+    static void bars(Writer out, List<String> labels, List<? extends Number> values, String[] colors, String yTitle)
+            throws IOException {
+        double max = 0;
+        for (Number value : values) {
+            max = Math.max(max, value.doubleValue());
+        }
+
+        double left = yTitle != null ? 50 : 20;
+        double top = 25;
+        double bottom = HEIGHT - 30;
+        double width = WIDTH - left - 20;
+        double slot = width / Math.max(1, values.size());
+
+        open(out);
+        out.append("<line x1='").append(number(left)).append("' y1='").append(number(bottom)).append("' x2='")
+                .append(number(left + width)).append("' y2='").append(number(bottom)).append("' stroke='#999'/>");
+        if (yTitle != null) {
+            out.append("<text x='15' y='").append(number((top + bottom) / 2)).append("' font-size='12' fill='#555' ")
+                    .append("text-anchor='middle' transform='rotate(-90 15 ").append(number((top + bottom) / 2)).append(")'>")
+                    .append(label(yTitle)).append("</text>");
+        }
+
+        for (int i = 0; i < values.size(); i++) {
+            double value = values.get(i).doubleValue();
+            double height = max > 0 ? value / max * (bottom - top) : 0;
+            double x = left + i * slot + slot * 0.2;
+            double center = left + i * slot + slot / 2;
+
+            out.append("<rect x='").append(number(x)).append("' y='").append(number(bottom - height))
+                    .append("' width='").append(number(slot * 0.6)).append("' height='").append(number(height))
+                    .append("' fill='").append(colors[i % colors.length]).append("'/>");
+            out.append("<text x='").append(number(center)).append("' y='").append(number(bottom - height - 6))
+                    .append("' font-size='12' font-weight='600' fill='#333' text-anchor='middle'>")
+                    .append(format(values.get(i))).append("</text>");
+            out.append("<text x='").append(number(center)).append("' y='").append(number(bottom + 18))
+                    .append("' font-size='12' fill='#555' text-anchor='middle'>").append(label(labels.get(i))).append("</text>");
+        }
+        close(out);
+    }
+
+    private static void open(Writer out) throws IOException {
+        out.append("<svg viewBox='0 0 ").append(String.valueOf(WIDTH)).append(' ').append(String.valueOf(HEIGHT))
+                .append("' width='100%' height='100%' preserveAspectRatio='xMidYMid meet' role='img'>");
+    }
+
+    private static void close(Writer out) throws IOException {
+        out.append("</svg>");
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String format(Number value) {
+        return value instanceof Double || value instanceof Float
+                ? String.format(Locale.ROOT, "%.1f", value.doubleValue()) : String.valueOf(value);
+    }
+
+    private static String label(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -2,10 +2,25 @@ package domain;
 
 import java.util.List;
 
-public record AnalysisResult(List<GameError> errors) {
+/**
+ * @param evaluations  engine evaluations of the analyzed player's moves, full tier
+ * @param errors       errors found with the full search
+ * @param triageErrors errors the shallow triage pass alone would have reported; the same as
+ *                     {@code errors} when the game was searched in a single tier
+ */
+public record AnalysisResult(String gameId, List<RawMoveEvaluation> evaluations, List<GameError> errors,
+                             List<GameError> triageErrors) {
 
-    public AnalysisResult(List<GameError> errors) {
+    public AnalysisResult(String gameId, List<RawMoveEvaluation> evaluations, List<GameError> errors,
+                          List<GameError> triageErrors) {
+        this.gameId = gameId;
+        this.evaluations = List.copyOf(evaluations);
         this.errors = List.copyOf(errors);
+        this.triageErrors = triageErrors == errors ? this.errors : List.copyOf(triageErrors);
+    }
+
+    public AnalysisResult(String gameId, List<RawMoveEvaluation> evaluations, List<GameError> errors) {
+        this(gameId, evaluations, errors, errors);
     }
 
 }
@@ -5,10 +5,12 @@ import domain.enums.ErrorCategory;
 import domain.enums.ErrorSeverity;
 import domain.enums.GamePhase;
 
+import java.io.Serializable;
+
 public record GameError(String gameId, int moveNumber, Side playerColor, ErrorSeverity severity, ErrorCategory category,
                         GamePhase phase, double centipawnLoss, double evalBefore, double evalAfter, double bestEval,
                         String playedMoveUci, String playedMoveSan, String bestMoveUci, String fenBefore,
-                        String fenAfter, String openingName, String openingEco) {
+                        String fenAfter, String openingName, String openingEco) implements Serializable {
 
     public static GameError from(RawMoveEvaluation eval,
                                  ErrorSeverity severity,
@@ -1,4 +1,8 @@
 package domain;
 
-public record LichessGame(String pgn, String gameId, String white, String black, int ratingWhite, int ratingBlack){
+/**
+ * @param createdAt game start, in epoch milliseconds as reported by lichess
+ */
+public record LichessGame(String pgn, String gameId, String white, String black, int ratingWhite, int ratingBlack,
+                          long createdAt){
 }
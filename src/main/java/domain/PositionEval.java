@@ -0,0 +1,12 @@
+package domain;
+
+/**
+ * Engine search result for a single position. The score is always expressed from the
+ * point of view of the side to move in that position, exactly as reported by the engine;
+ * {@code depth} is the depth the search reached.
+ */
+public record PositionEval(String bestMoveUci, double scoreCp, boolean forcedMate, int depth) {
+
+    public static final PositionEval EMPTY = new PositionEval(null, 0, false, 0);
+
+}
@@ -0,0 +1,22 @@
+package fetch;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for blocking network calls (game downloads, opening explorer lookups), kept apart
+ * from the bounded threads that drive the engines.
+ */
+public final class IoExecutors {
+
+    private IoExecutors() {
+    }
+
+    public static ExecutorService create(boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        // previous behaviour: blocking calls share a small pool of platform threads
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+    }
+}
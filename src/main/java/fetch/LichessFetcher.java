@@ -3,13 +3,14 @@ package fetch;
 import domain.LichessGame;
 import parser.PGNParser;
 
+import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.URI;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class LichessFetcher {
 
@@ -22,37 +23,56 @@ public class LichessFetcher {
     }
 
     public List<LichessGame> fetchGamesByUser(String username, int maxGames) throws Exception {
-        var url = BASE_URL + username + "?max=" + maxGames + "&pgnInJson=true";
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Accept", "application/x-ndjson")
-                .GET()
-                .build();
+        try (Stream<LichessGame> games = streamGamesByUser(username, maxGames)) {
+            return games.toList();
+        }
+    }
 
-        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch games: " + response.statusCode());
+    public List<LichessGame> fetchGamesByDate(String username, LocalDate fromDate, LocalDate toDate) throws Exception {
+        try (Stream<LichessGame> games = streamGamesByDate(username, fromDate, toDate)) {
+            return games.toList();
         }
+    }
 
-        return PGNParser.parseNdjson(response.body());
+    /**
+     * Games are parsed as the response body arrives. The stream must be closed to release the connection.
+     */
+    public Stream<LichessGame> streamGamesByUser(String username, int maxGames) throws Exception {
+        var url = BASE_URL + username + "?max=" + maxGames + "&pgnInJson=true";
+        return streamGames(url);
     }
 
-    public List<LichessGame> fetchGamesByDate(String username, LocalDate fromDate, LocalDate toDate) throws Exception {
+    public Stream<LichessGame> streamGamesByDate(String username, LocalDate fromDate, LocalDate toDate) throws Exception {
         var fromTimestamp = fromDate.atStartOfDay().toEpochSecond(java.time.ZoneOffset.UTC);
         var toTimestamp = toDate.plusDays(1).atStartOfDay().toEpochSecond(java.time.ZoneOffset.UTC) - 1;
         var url = BASE_URL + username + "?since=" + (fromTimestamp * 1000) + "&until=" + (toTimestamp * 1000) + "&pgnInJson=true";
+        return streamGames(url);
+    }
+
+    /**
+     * All games started at or after the given instant, newest first.
+     *
+     * @param sinceMillis epoch milliseconds, compared with {@link LichessGame#createdAt()}
+     */
+    public Stream<LichessGame> streamGamesSince(String username, long sinceMillis) throws Exception {
+        var url = BASE_URL + username + "?since=" + sinceMillis + "&pgnInJson=true";
+        return streamGames(url);
+    }
+
+    private Stream<LichessGame> streamGames(String url) throws Exception {
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Accept", "application/x-ndjson")
                 .GET()
                 .build();
 
-        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            return PGNParser.parseNdjson(response.body());
-        } else {
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
             throw new RuntimeException("Failed to fetch games: " + response.statusCode());
         }
+
+        return PGNParser.streamNdjson(response.body());
     }
 
-}
\ No newline at end of file
+}
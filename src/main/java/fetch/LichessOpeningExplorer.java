@@ -1,37 +1,191 @@
 package fetch;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.OpeningInfo;
 import domain.OpeningResponse;
+import parser.PositionKeys;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class LichessOpeningExplorer {
 
     private static final String OPENING_URL = "https://explorer.lichess.ovh/masters";
+    private static final Duration DEFAULT_REQUEST_INTERVAL = Duration.ofMillis(100);
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final int MAX_RETRIES = 4;
+    private static final long INITIAL_BACKOFF_MILLIS = 1_000;
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final HttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final OpeningBook openingBook;
+    private final boolean remoteLookups;
+    private final String explorerUrl;
+    private final long requestIntervalNanos;
+    private final Executor ioExecutor;
+
+    // remote answers by position key, empty answers included
+    private final LruCache<Long, Optional<OpeningResponse>> remoteCache;
+    private final ConcurrentMap<Long, CompletableFuture<Optional<OpeningResponse>>> inFlight = new ConcurrentHashMap<>();
+    private long nextRequestAt = System.nanoTime();
+
+    public LichessOpeningExplorer() {
+        this(OpeningBook.empty(), true);
+    }
+
+    /**
+     * @param remoteLookups whether positions missing from the local book are asked to the lichess explorer
+     */
+    public LichessOpeningExplorer(OpeningBook openingBook, boolean remoteLookups) {
+        this(openingBook, remoteLookups, ForkJoinPool.commonPool());
+    }
+
+    public LichessOpeningExplorer(OpeningBook openingBook, boolean remoteLookups, Executor ioExecutor) {
+        this(openingBook, remoteLookups, OPENING_URL, HttpClient.newHttpClient(), DEFAULT_REQUEST_INTERVAL, DEFAULT_CACHE_SIZE, ioExecutor);
+    }
+
+    /**
+     * @param explorerUrl     explorer endpoint, the FEN is passed as the {@code fen} query parameter
+     * @param requestInterval minimum delay between two remote requests, shared by all callers
+     * @param cacheSize       maximum number of remote answers kept in memory
+     * @param ioExecutor      runs the asynchronous remote lookups
+     */
+    public LichessOpeningExplorer(OpeningBook openingBook, boolean remoteLookups, String explorerUrl,
+                                  HttpClient httpClient, Duration requestInterval, int cacheSize, Executor ioExecutor) {
+        this.openingBook = openingBook;
+        this.remoteLookups = remoteLookups;
+        this.explorerUrl = explorerUrl;
+        this.httpClient = httpClient;
+        this.requestIntervalNanos = requestInterval.toNanos();
+        this.remoteCache = new LruCache<>(cacheSize);
+        this.ioExecutor = ioExecutor;
+    }
 
     public Optional<OpeningResponse> getOpeningFromFen(String fen) {
+        return getOpening(PositionKeys.key(fen), fen);
+    }
+
+    /**
+     * @param positionKey key of the position, see {@link PositionKeys}; the FEN is only sent to the remote explorer
+     */
+    public Optional<OpeningResponse> getOpening(long positionKey, String fen) {
+
+        Optional<OpeningInfo> local = openingBook.lookup(positionKey);
+        if (local.isPresent()) {
+            return Optional.of(new OpeningResponse(local.get(), null, null, null, null, null));
+        }
+
+        if (!remoteLookups) {
+            return Optional.empty();
+        }
+
+        return lookupRemote(positionKey, fen);
+    }
+
+    /**
+     * Whether the local book knows the position. Never waits on the remote explorer, so engine
+     * threads can ask before deciding to search.
+     */
+    public boolean isInLocalBook(long positionKey) {
+        return openingBook.lookup(positionKey).isPresent();
+    }
+
+    public CompletableFuture<Optional<OpeningResponse>> getOpeningFromFenAsync(String fen) {
+        return getOpeningAsync(PositionKeys.key(fen), fen);
+    }
+
+    /**
+     * Same as {@link #getOpening(long, String)}; local book answers complete immediately, remote
+     * lookups run on the I/O executor so the calling thread can keep working meanwhile.
+     */
+    public CompletableFuture<Optional<OpeningResponse>> getOpeningAsync(long positionKey, String fen) {
+
+        Optional<OpeningInfo> local = openingBook.lookup(positionKey);
+        if (local.isPresent() || !remoteLookups) {
+            return CompletableFuture.completedFuture(local.map(info -> new OpeningResponse(info, null, null, null, null, null)));
+        }
+
+        return CompletableFuture.supplyAsync(() -> lookupRemote(positionKey, fen), ioExecutor);
+    }
+
+    private Optional<OpeningResponse> lookupRemote(long key, String fen) {
+
+        Optional<OpeningResponse> cached = remoteCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // concurrent lookups of the same position wait for the first request instead of sending their own
+        CompletableFuture<Optional<OpeningResponse>> request = new CompletableFuture<>();
+        CompletableFuture<Optional<OpeningResponse>> pending = inFlight.putIfAbsent(key, request);
+        if (pending != null) {
+            return pending.join();
+        }
 
         try {
-            String encodedFen = URLEncoder.encode(fen, StandardCharsets.UTF_8);
-            String url = OPENING_URL + "?fen=" + encodedFen;
+            cached = remoteCache.get(key);
+            Optional<OpeningResponse> opening = cached != null ? cached : fetchRemoteOpening(fen);
+            remoteCache.put(key, opening);
+            request.complete(opening);
+            return opening;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // transient failure: answer "unknown" without caching it
+            request.complete(Optional.empty());
+            return Optional.empty();
+        } finally {
+            inFlight.remove(key, request);
+        }
+    }
+
+    private Optional<OpeningResponse> fetchRemoteOpening(String fen) throws IOException, InterruptedException {
+
+        String encodedFen = URLEncoder.encode(fen, StandardCharsets.UTF_8);
+        String url = explorerUrl + "?fen=" + encodedFen;
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Accept", "application/json")
-                    .GET()
-                    .build();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
 
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+
+        for (int attempt = 0; ; attempt++) {
+            awaitRequestSlot();
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
+            if (response.statusCode() == 429) {
+                if (attempt == MAX_RETRIES) {
+                    throw new IOException("Opening explorer still rate limited after " + MAX_RETRIES + " retries");
+                }
+                long waitMillis = response.headers().firstValue("Retry-After")
+                        .map(LichessOpeningExplorer::parseRetryAfterMillis)
+                        .orElse(backoffMillis);
+                delayAllRequests(waitMillis);
+                backoffMillis *= 2;
+                continue;
+            }
+
+            if (response.statusCode() >= 500) {
+                throw new IOException("Opening explorer error: " + response.statusCode());
+            }
+
             if (response.statusCode() != 200 || response.body().isBlank()) {
                 return Optional.empty();
             }
@@ -39,9 +193,35 @@ public class LichessOpeningExplorer {
             OpeningResponse opening = mapper.readValue(response.body(), OpeningResponse.class);
 
             return opening.opening() != null ? Optional.of(opening) : Optional.empty();
+        }
+    }
 
-        } catch (Exception e) {
-            return Optional.empty();
+    /* ==========================
+       RATE LIMITING
+       ========================== */
+
+    private void awaitRequestSlot() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestAt);
+            nextRequestAt = slot + requestIntervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized void delayAllRequests(long millis) {
+        nextRequestAt = Math.max(nextRequestAt, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static long parseRetryAfterMillis(String retryAfter) {
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return INITIAL_BACKOFF_MILLIS;
         }
     }
 
@@ -0,0 +1,140 @@
+package fetch;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.move.Move;
+import com.github.bhlangonijr.chesslib.move.MoveList;
+import domain.OpeningInfo;
+import parser.PositionKeys;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * In-memory opening index built from the lichess chess-openings TSV files (eco, name, pgn).
+ * Every position reached by a book line is indexed by its position key; positions that end a
+ * line carry that line's name, intermediate positions inherit the name of a line passing through them.
+ */
+public class OpeningBook {
+
+    private static final OpeningBook EMPTY = new OpeningBook(Map.of());
+
+    private final Map<Long, OpeningInfo> positions;
+
+    private OpeningBook(Map<Long, OpeningInfo> positions) {
+        this.positions = positions;
+    }
+
+    public static OpeningBook empty() {
+        return EMPTY;
+    }
+
+    public static OpeningBook load(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return EMPTY;
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(".tsv")).sorted().toList();
+        }
+
+        Map<Long, OpeningInfo> named = new HashMap<>();
+        Map<Long, OpeningInfo> passedThrough = new HashMap<>();
+
+        for (Path file : files) {
+            loadFile(file, named, passedThrough);
+        }
+
+        passedThrough.forEach(named::putIfAbsent);
+        return new OpeningBook(Map.copyOf(named));
+    }
+
+    private static void loadFile(Path file, Map<Long, OpeningInfo> named, Map<Long, OpeningInfo> passedThrough) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return;
+            }
+
+            List<String> columns = List.of(header.split("\t"));
+            int ecoColumn = columns.indexOf("eco");
+            int nameColumn = columns.indexOf("name");
+            int pgnColumn = columns.indexOf("pgn");
+            if (ecoColumn < 0 || nameColumn < 0 || pgnColumn < 0) {
+                throw new IOException("Unexpected opening file header in " + file + ": " + header);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                String[] fields = line.split("\t");
+                if (fields.length <= Math.max(ecoColumn, Math.max(nameColumn, pgnColumn))) continue;
+
+                OpeningInfo opening = new OpeningInfo(fields[ecoColumn], fields[nameColumn]);
+                try {
+                    indexLine(fields[pgnColumn], opening, named, passedThrough);
+                } catch (Exception e) {
+                    System.err.println("Skipping opening line " + opening.name() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void indexLine(String pgn, OpeningInfo opening,
+                                  Map<Long, OpeningInfo> named, Map<Long, OpeningInfo> passedThrough) throws Exception {
+
+        MoveList moves = new MoveList();
+        moves.loadFromSan(stripMoveNumbers(pgn));
+
+        Board board = new Board();
+        List<Long> keys = new ArrayList<>(moves.size());
+        for (Move move : moves) {
+            board.doMove(move);
+            keys.add(PositionKeys.key(board));
+        }
+
+        if (keys.isEmpty()) return;
+
+        named.put(keys.getLast(), opening);
+        for (int i = 0; i < keys.size() - 1; i++) {
+            passedThrough.putIfAbsent(keys.get(i), opening);
+        }
+    }
+
+    private static String stripMoveNumbers(String pgn) {
+        StringBuilder san = new StringBuilder(pgn.length());
+        for (String token : pgn.trim().split("\\s+")) {
+            String move = token.replaceFirst("^\\d+\\.+", "");
+            if (move.isEmpty()) continue;
+            if (!san.isEmpty()) san.append(' ');
+            san.append(move);
+        }
+        return san.toString();
+    }
+
+    public Optional<OpeningInfo> lookup(long positionKey) {
+        return Optional.ofNullable(positions.get(positionKey));
+    }
+
+    public Optional<OpeningInfo> lookup(String fen) {
+        return lookup(PositionKeys.key(fen));
+    }
+
+    public boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    public int size() {
+        return positions.size();
+    }
+}
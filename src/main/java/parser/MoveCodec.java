@@ -0,0 +1,71 @@
+package parser;
+
+/**
+ * Packs a UCI move into 16 bits: from square (6 bits), to square (6 bits) and promotion piece (3 bits).
+ * Square indexes follow chesslib's ordering (a1 = 0, h8 = 63). Zero is reserved for "no move".
+ */
+public final class MoveCodec {
+
+    public static final short NONE = 0;
+
+    private static final String PROMOTIONS = " nbrq";
+
+    private MoveCodec() {
+    }
+
+    public static short encode(String uciMove) {
+        if (uciMove == null || uciMove.length() < 4) {
+            return NONE;
+        }
+
+        int from = squareIndex(uciMove.charAt(0), uciMove.charAt(1));
+        int to = squareIndex(uciMove.charAt(2), uciMove.charAt(3));
+        int promotion = uciMove.length() > 4 ? PROMOTIONS.indexOf(Character.toLowerCase(uciMove.charAt(4))) : 0;
+
+        if (from < 0 || to < 0 || promotion < 0) {
+            throw new IllegalArgumentException("Invalid UCI move: " + uciMove);
+        }
+        return encode(from, to, promotion);
+    }
+
+    public static short encode(int from, int to, int promotion) {
+        return (short) (from | (to << 6) | (promotion << 12));
+    }
+
+    public static String decode(short code) {
+        if (code == NONE) {
+            return null;
+        }
+
+        int from = from(code);
+        int to = to(code);
+        int promotion = promotion(code);
+
+        StringBuilder move = new StringBuilder(5)
+                .append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)))
+                .append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+        if (promotion != 0) {
+            move.append(PROMOTIONS.charAt(promotion));
+        }
+        return move.toString();
+    }
+
+    public static int from(short code) {
+        return code & 0x3F;
+    }
+
+    public static int to(short code) {
+        return (code >>> 6) & 0x3F;
+    }
+
+    public static int promotion(short code) {
+        return (code >>> 12) & 0x7;
+    }
+
+    private static int squareIndex(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
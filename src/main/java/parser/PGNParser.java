@@ -1,81 +1,418 @@
 package parser;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.github.bhlangonijr.chesslib.Board;
 import com.github.bhlangonijr.chesslib.Piece;
+import com.github.bhlangonijr.chesslib.PieceType;
 import com.github.bhlangonijr.chesslib.Side;
 import com.github.bhlangonijr.chesslib.Square;
 import com.github.bhlangonijr.chesslib.move.Move;
-import com.github.bhlangonijr.chesslib.pgn.PgnHolder;
 import domain.LichessGame;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class PGNParser {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     public static List<LichessGame> parseNdjson(String ndjson) {
-        List<LichessGame> games = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
+        try (Stream<LichessGame> games = streamNdjson(new StringReader(ndjson))) {
+            return games.toList();
+        }
+    }
 
-        for (String line : ndjson.split("\n")) {
-            if (line.isBlank()) continue;
-            try {
-                JsonNode node = mapper.readTree(line);
+    /**
+     * Lazily parses NDJSON games as the input is read, one line at a time; analysis can start on the
+     * first game while the rest is still downloading. Closing the stream closes the input.
+     */
+    public static Stream<LichessGame> streamNdjson(InputStream ndjson) {
+        return streamNdjson(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+    }
 
-                String gameId = node.get("id").asText();
-                String pgn = node.get("pgn").asText();
+    private static Stream<LichessGame> streamNdjson(Reader ndjson) {
+        BufferedReader reader = new BufferedReader(ndjson);
 
-                JsonNode players = node.get("players");
-                String white = players.get("white").get("user").get("name").asText();
-                String black = players.get("black").get("user").get("name").asText();
+        Iterator<LichessGame> games = new Iterator<>() {
+            private LichessGame next;
 
-                int whiteRating = players.get("white").get("rating").asInt();
-                int blackRating = players.get("black").get("rating").asInt();
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null) {
+                        String line = reader.readLine();
+                        if (line == null) return false;
+                        next = parseGameLine(line);
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
 
-                games.add(new LichessGame(pgn, gameId, white, black, whiteRating, blackRating));
-            } catch (Exception e) {
+            @Override
+            public LichessGame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                LichessGame game = next;
+                next = null;
+                return game;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(games, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static LichessGame parseGameLine(String line) {
+        if (line.isBlank()) return null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            LichessGame game = readGame(parser);
+            if (game == null) {
                 System.err.println("Errore parsing line: " + line);
-                e.printStackTrace();
             }
+            return game;
+        } catch (IOException e) {
+            System.err.println("Errore parsing line: " + line);
+            e.printStackTrace();
+            return null;
         }
+    }
 
-        return games;
+    /* ==========================
+       STREAMING GAME READER
+       ========================== */
+
+    private record Player(String name, int rating) {
     }
 
+    private static LichessGame readGame(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) return null;
 
-    public static List<String> convertPgnToUciMoves(String pgn) throws Exception {
+        String gameId = null;
+        String pgn = null;
+        long createdAt = 0;
+        Player white = null;
+        Player black = null;
 
-        // 1. Crea file temporaneo
-        Path tempPgn = Files.createTempFile("lichess-game-", ".pgn");
-        Files.writeString(tempPgn, pgn, StandardCharsets.UTF_8);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
 
-        // 2. PgnHolder con filename
-        PgnHolder holder = new PgnHolder(tempPgn.toString());
-        holder.loadPgn();
+            switch (field) {
+                case "id" -> gameId = parser.getValueAsString();
+                case "pgn" -> pgn = parser.getValueAsString();
+                case "createdAt" -> createdAt = parser.getValueAsLong();
+                case "players" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String color = parser.currentName();
+                        parser.nextToken();
+                        switch (color) {
+                            case "white" -> white = readPlayer(parser);
+                            case "black" -> black = readPlayer(parser);
+                            default -> parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
 
-        var game = holder.getGames().getFirst();
-        Board board = new Board();
-        List<String> uciMoves = new ArrayList<>();
+        // games against the AI or anonymous players have no user name
+        if (gameId == null || pgn == null || white == null || black == null) return null;
+
+        return new LichessGame(pgn, gameId, white.name(), black.name(), white.rating(), black.rating(), createdAt);
+    }
 
-        for (Move move : game.getHalfMoves()) {
-            board.doMove(move);
-            uciMoves.add(move.toString()); // UCI
+    private static Player readPlayer(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
         }
 
-        // 3. Cleanup
-        Files.deleteIfExists(tempPgn);
+        String name = null;
+        int rating = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "rating" -> rating = parser.getValueAsInt();
+                case "user" -> {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String userField = parser.currentName();
+                        parser.nextToken();
+                        if (userField.equals("name")) {
+                            name = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
 
+        return name != null ? new Player(name, rating) : null;
+    }
+
+    public static List<String> convertPgnToUciMoves(String pgn) {
+        short[] moves = parseMovetext(pgn);
+        List<String> uciMoves = new ArrayList<>(moves.length);
+        for (short move : moves) {
+            uciMoves.add(MoveCodec.decode(move));
+        }
         return uciMoves;
     }
 
+    /**
+     * Parses the first game of a PGN text into {@link MoveCodec} move codes, straight from memory.
+     * Tag pairs, comments, variations, NAGs, move numbers and annotation glyphs are skipped; parsing
+     * stops at the game termination marker. A {@code ByteBuffer} can be passed through
+     * {@code StandardCharsets.US_ASCII.decode(buffer)}.
+     */
+    public static short[] parseMovetext(CharSequence pgn) {
+        Board board = new Board();
+        short[] moves = new short[128];
+        int count = 0;
+
+        int length = pgn.length();
+        int i = 0;
+        int variationDepth = 0;
+
+        while (i < length) {
+            char c = pgn.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '[' && variationDepth == 0) {
+                // tag pair, always on its own line
+                i = skipPast(pgn, i, '\n');
+            } else if (c == '{') {
+                i = skipPast(pgn, i, '}');
+            } else if (c == ';') {
+                i = skipPast(pgn, i, '\n');
+            } else if (c == '(') {
+                variationDepth++;
+                i++;
+            } else if (c == ')') {
+                variationDepth = Math.max(0, variationDepth - 1);
+                i++;
+            } else {
+                int end = i;
+                while (end < length && !isTokenEnd(pgn.charAt(end))) end++;
+                if (end == i) {
+                    // stray closing brace
+                    i++;
+                    continue;
+                }
+
+                if (variationDepth == 0) {
+                    if (isTermination(pgn, i, end)) break;
+
+                    int sanStart = skipMoveNumber(pgn, i, end);
+                    int sanEnd = trimSuffix(pgn, sanStart, end);
+                    if (sanEnd > sanStart && pgn.charAt(sanStart) != '$') {
+                        Move move = decodeSan(board, pgn.subSequence(sanStart, sanEnd).toString());
+                        board.doMove(move);
+                        if (count == moves.length) moves = Arrays.copyOf(moves, count * 2);
+                        moves[count++] = encode(move);
+                    }
+                }
+                i = end;
+            }
+        }
+
+        return Arrays.copyOf(moves, count);
+    }
+
+    /* ==========================
+       MOVETEXT TOKENS
+       ========================== */
+
+    private static int skipPast(CharSequence text, int index, char terminator) {
+        int i = index + 1;
+        while (i < text.length() && text.charAt(i) != terminator) i++;
+        return i + 1;
+    }
+
+    private static boolean isTokenEnd(char c) {
+        return Character.isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+    }
+
+    private static boolean isTermination(CharSequence text, int start, int end) {
+        return regionEquals(text, start, end, "1-0") || regionEquals(text, start, end, "0-1")
+                || regionEquals(text, start, end, "1/2-1/2") || regionEquals(text, start, end, "*");
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int skipMoveNumber(CharSequence text, int start, int end) {
+        // "12.", "12..." or "12.e4"
+        int i = start;
+        while (i < end && Character.isDigit(text.charAt(i))) i++;
+        if (i == start || i == end || text.charAt(i) != '.') return start;
+        while (i < end && text.charAt(i) == '.') i++;
+        return i;
+    }
+
+    private static int trimSuffix(CharSequence text, int start, int end) {
+        // check, mate and annotation glyphs
+        int sanEnd = end;
+        while (sanEnd > start && "+#!?".indexOf(text.charAt(sanEnd - 1)) >= 0) sanEnd--;
+        return sanEnd;
+    }
+
+    /* ==========================
+       SAN DECODING
+       ========================== */
+
+    private static Move decodeSan(Board board, String san) {
+
+        if (san.startsWith("O-O") || san.startsWith("0-0")) {
+            boolean queenSide = san.length() >= 5;
+            return findCastle(board, queenSide, san);
+        }
+
+        PieceType pieceType = PieceType.PAWN;
+        int p = 0;
+        int last = san.length();
+
+        char first = san.charAt(0);
+        if ("KQRBN".indexOf(first) >= 0) {
+            pieceType = pieceTypeOf(first);
+            p = 1;
+        }
+
+        PieceType promotion = null;
+        int equals = san.indexOf('=');
+        if (equals >= 0 && equals + 1 < last) {
+            promotion = pieceTypeOf(san.charAt(equals + 1));
+            last = equals;
+        } else if (pieceType == PieceType.PAWN && last > 2 && "QRBN".indexOf(san.charAt(last - 1)) >= 0) {
+            // promotion written without '=' ("e8Q")
+            promotion = pieceTypeOf(san.charAt(last - 1));
+            last--;
+        }
+
+        if (last - p < 2) {
+            throw new IllegalArgumentException("Invalid SAN move: " + san);
+        }
+
+        int to = squareIndex(san.charAt(last - 2), san.charAt(last - 1));
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = p; i < last - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') fromFile = c - 'a';
+            else if (c >= '1' && c <= '8') fromRank = c - '1';
+        }
+
+        Move match = null;
+        for (Move move : board.legalMoves()) {
+            if (move.getTo().ordinal() != to) continue;
+            if (board.getPiece(move.getFrom()).getPieceType() != pieceType) continue;
 
+            int from = move.getFrom().ordinal();
+            if (fromFile >= 0 && (from & 7) != fromFile) continue;
+            if (fromRank >= 0 && (from >>> 3) != fromRank) continue;
+
+            PieceType movePromotion = move.getPromotion() == null || move.getPromotion() == Piece.NONE
+                    ? null : move.getPromotion().getPieceType();
+            if (movePromotion != promotion) continue;
+
+            if (match != null) {
+                throw new IllegalArgumentException("Ambiguous SAN move: " + san);
+            }
+            match = move;
+        }
+
+        if (match == null) {
+            throw new IllegalArgumentException("Illegal SAN move: " + san);
+        }
+        return match;
+    }
+
+    private static Move findCastle(Board board, boolean queenSide, String san) {
+        for (Move move : board.legalMoves()) {
+            if (board.getPiece(move.getFrom()).getPieceType() != PieceType.KING) continue;
+
+            int delta = move.getTo().ordinal() - move.getFrom().ordinal();
+            if (queenSide ? delta == -2 : delta == 2) {
+                return move;
+            }
+        }
+        throw new IllegalArgumentException("Illegal castling: " + san);
+    }
+
+    private static PieceType pieceTypeOf(char symbol) {
+        return switch (symbol) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'R' -> PieceType.ROOK;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            default -> throw new IllegalArgumentException("Invalid piece: " + symbol);
+        };
+    }
+
+    private static int squareIndex(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Invalid square: " + file + rank);
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    private static short encode(Move move) {
+        int promotion = 0;
+        if (move.getPromotion() != null && move.getPromotion() != Piece.NONE) {
+            promotion = switch (move.getPromotion().getPieceType()) {
+                case KNIGHT -> 1;
+                case BISHOP -> 2;
+                case ROOK -> 3;
+                default -> 4;
+            };
+        }
+        return MoveCodec.encode(move.getFrom().ordinal(), move.getTo().ordinal(), promotion);
+    }
 
     public static Move convertUciToMove(String uciMove, Side sideToMove) {
         if (uciMove.length() < 4)
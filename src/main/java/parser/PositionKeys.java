@@ -0,0 +1,29 @@
+package parser;
+
+import com.github.bhlangonijr.chesslib.Board;
+
+public final class PositionKeys {
+
+    private PositionKeys() {
+    }
+
+    /**
+     * 64-bit Zobrist key of the board: placement, side to move, castling and en passant identify the
+     * position, move counters do not. chesslib hashes the whole board again on every call, so take
+     * the key once per position and pass it along. Never returns zero, so callers can use it as an
+     * empty marker.
+     */
+    public static long key(Board board) {
+        long key = board.getZobristKey();
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Key of a position given as FEN. Loads a board, so prefer {@link #key(Board)} when one is at hand.
+     */
+    public static long key(String fen) {
+        Board board = new Board();
+        board.loadFromFen(fen);
+        return key(board);
+    }
+}
@@ -0,0 +1,273 @@
+package store;
+
+import analysis.ErrorAggregates;
+import analysis.TopErrors;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.AnalysisResult;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only NDJSON file with one line per finished game: its evaluations and errors, or why it
+ * could not be analyzed. A game is written as soon as it finishes, so a crashed or killed run loses
+ * at most the games in flight.
+ * <p>
+ * Next to it, a summary file holds what later runs need from the games already written: their
+ * ids, and the error aggregates and top errors of the completed ones. Opening the store reads the
+ * summary and only the lines written after it; the summary is rewritten every
+ * {@value #SUMMARY_INTERVAL} games and on close, through a temporary file, so it always matches
+ * a prefix of the log. Without a usable summary the whole log is read once.
+ */
+public class CheckpointStore implements Closeable {
+
+    static final int SUMMARY_INTERVAL = 100;
+
+    // one line of the file, triageErrors is null when equal to errors; failure is set, and the rest
+    // empty, for a game that was fetched but could not be analyzed
+    record StoredGame(String gameId, List<RawMoveEvaluation> evaluations, List<GameError> errors,
+                      List<GameError> triageErrors, String failure) {
+    }
+
+    // the state of the store once the first logBytes of the file are read
+    record Summary(long logBytes, List<String> completed, Map<String, String> failed,
+                   List<ErrorAggregates.Cell> cells, long gamesWithErrors, long analyzedGames,
+                   int topK, List<GameError> topErrors, long topErrorsSeen) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final Path summaryFile;
+    private final Set<String> completedGameIds = new HashSet<>();
+    private final Map<String, String> failedGames = new LinkedHashMap<>();
+    private ErrorAggregates aggregates;
+    private TopErrors topErrors;
+    private BufferedWriter writer;
+    private int sinceSummary;
+
+    private CheckpointStore(Path file, int topK) {
+        this.file = file;
+        this.summaryFile = summaryFile(file);
+        this.aggregates = new ErrorAggregates();
+        this.topErrors = new TopErrors(topK);
+    }
+
+    static Path summaryFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".summary.json");
+    }
+
+    public static CheckpointStore open(Path file) throws IOException {
+        return open(file, TopErrors.DEFAULT_K);
+    }
+
+    /**
+     * Opens the store, creating the file if needed and reading back what earlier runs stored.
+     *
+     * @param topK errors kept per bucket by {@link #completedTopErrors()}
+     */
+    public static CheckpointStore open(Path file, int topK) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        CheckpointStore store = new CheckpointStore(file, topK);
+        if (Files.exists(file)) {
+            long logBytes = Files.size(file);
+            long summarized = store.readSummary(logBytes);
+            store.readLog(summarized);
+            store.sinceSummary = summarized < logBytes ? 1 : 0;
+        }
+
+        store.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!endsWithNewLine(file)) {
+            // a line cut short by a crash must not swallow the next game
+            store.writer.newLine();
+            store.writer.flush();
+        }
+        return store;
+    }
+
+    // the bytes of the log the summary accounts for, 0 when there is no summary to start from
+    private long readSummary(long logBytes) {
+        if (!Files.exists(summaryFile)) {
+            return 0;
+        }
+        try {
+            Summary summary = MAPPER.readValue(summaryFile.toFile(), Summary.class);
+            // a summary of another log, or of a different k, would be wrong from the start
+            if (summary.logBytes() > logBytes || summary.topK() != topErrors.k()) {
+                return 0;
+            }
+            completedGameIds.addAll(summary.completed());
+            failedGames.putAll(summary.failed());
+            aggregates = ErrorAggregates.of(summary.cells(), summary.gamesWithErrors(), summary.analyzedGames());
+            topErrors = TopErrors.of(summary.topK(), summary.topErrors(), summary.topErrorsSeen());
+            return summary.logBytes();
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable checkpoint summary " + summaryFile + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void readLog(long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel.position(from), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                try {
+                    apply(MAPPER.readValue(line, StoredGame.class));
+                } catch (JsonProcessingException e) {
+                    // usually the last line, cut short by the crash the store is there for
+                    System.err.println("Skipping unreadable checkpoint line " + lineNumber + " after byte "
+                            + from + " of " + file);
+                }
+            }
+        }
+    }
+
+    private void apply(StoredGame game) {
+        if (game.failure() != null) {
+            if (!completedGameIds.contains(game.gameId())) {
+                failedGames.put(game.gameId(), game.failure());
+            }
+        } else if (completedGameIds.add(game.gameId())) {
+            failedGames.remove(game.gameId());
+            List<GameError> triageErrors = game.triageErrors() != null ? game.triageErrors() : game.errors();
+            AnalysisResult result = new AnalysisResult(game.gameId(), List.of(), game.errors(), triageErrors);
+            aggregates.add(result);
+            topErrors.addAll(result.errors());
+        }
+    }
+
+    private static boolean endsWithNewLine(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    public synchronized boolean isCompleted(String gameId) {
+        return completedGameIds.contains(gameId);
+    }
+
+    /**
+     * Whether the game needs no further analysis: it is completed, or it was recorded as failed
+     * with {@link #markFailed} and is not retried.
+     */
+    public synchronized boolean isTerminal(String gameId) {
+        return completedGameIds.contains(gameId) || failedGames.containsKey(gameId);
+    }
+
+    public synchronized int completedCount() {
+        return completedGameIds.size();
+    }
+
+    public synchronized int failedCount() {
+        return failedGames.size();
+    }
+
+    /**
+     * Error aggregates of every completed game, as a copy the caller owns.
+     */
+    public synchronized ErrorAggregates completedAggregates() {
+        return new ErrorAggregates().merge(aggregates);
+    }
+
+    /**
+     * The worst errors of every completed game, as a copy the caller owns.
+     */
+    public synchronized TopErrors completedTopErrors() {
+        return new TopErrors(topErrors.k()).merge(topErrors);
+    }
+
+    /**
+     * Appends a finished game and flushes it to the file before returning.
+     */
+    public synchronized void append(AnalysisResult result) throws IOException {
+        // single-tier games have the same errors in both tiers, written once
+        List<GameError> triageErrors = result.triageErrors() == result.errors() ? null : result.triageErrors();
+        write(new StoredGame(result.gameId(), result.evaluations(), result.errors(), triageErrors, null));
+        if (completedGameIds.add(result.gameId())) {
+            failedGames.remove(result.gameId());
+            aggregates.add(result);
+            topErrors.addAll(result.errors());
+        }
+    }
+
+    /**
+     * Records a fetched game that no run can analyze, such as a variant the decoder rejects, so
+     * that it no longer holds back the watermark. Engine and network failures are not recorded:
+     * they may not happen again, and the game is retried by the next run.
+     */
+    public synchronized void markFailed(String gameId, String reason) throws IOException {
+        write(new StoredGame(gameId, List.of(), List.of(), null, reason));
+        if (!completedGameIds.contains(gameId)) {
+            failedGames.put(gameId, reason);
+        }
+    }
+
+    private void write(StoredGame game) throws IOException {
+        writer.write(MAPPER.writeValueAsString(game));
+        writer.newLine();
+        writer.flush();
+        if (++sinceSummary >= SUMMARY_INTERVAL) {
+            saveSummary();
+        }
+    }
+
+    // the log is flushed, so its size is exactly what the state accounts for
+    private void saveSummary() {
+        try {
+            Summary summary = new Summary(Files.size(file), List.copyOf(completedGameIds), failedGames,
+                    aggregates.cells(), aggregates.gameCount(), aggregates.analyzedGames(),
+                    topErrors.k(), topErrors.worst(), topErrors.seen());
+            Path temp = summaryFile.resolveSibling(summaryFile.getFileName() + ".tmp");
+            MAPPER.writeValue(temp.toFile(), summary);
+            Files.move(temp, summaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sinceSummary = 0;
+        } catch (IOException e) {
+            // the log still has every game; the next run reads more of it
+            System.err.println("Could not save checkpoint summary " + summaryFile + ": " + e.getMessage());
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+        if (sinceSummary > 0) {
+            saveSummary();
+        }
+    }
+}
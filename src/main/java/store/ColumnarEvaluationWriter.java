@@ -0,0 +1,204 @@
+package store;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import parser.MoveCodec;
+import store.ColumnarEvaluations.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static store.ColumnarEvaluations.*;
+
+/**
+ * Collects plies column by column in primitive buffers and writes them as a
+ * {@link ColumnarEvaluations} file. Strings (game ids, SAN, openings) are dictionary-encoded,
+ * positions are kept as 64-bit keys and FENs are only written on request.
+ */
+public class ColumnarEvaluationWriter {
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private final boolean withFens;
+    private final ByteBuffer[] columns = new ByteBuffer[Column.values().length];
+    private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final ByteArrayOutputStream fens = new ByteArrayOutputStream();
+    private int[] fenEnds = new int[INITIAL_ROWS * 2];
+    private int rows;
+
+    /**
+     * @param withFens whether the FENs before and after each move are written next to their keys
+     */
+    public ColumnarEvaluationWriter(boolean withFens) {
+        this.withFens = withFens;
+        for (Column column : Column.values()) {
+            columns[column.ordinal()] = ByteBuffer.allocate(column.width * INITIAL_ROWS);
+        }
+    }
+
+    /**
+     * Adds every evaluation of a game, along with the error classified on it if any.
+     */
+    public void add(AnalysisResult result) {
+        Map<Integer, GameError> errorsByMove = new HashMap<>();
+        for (GameError error : result.errors()) {
+            errorsByMove.put(error.moveNumber(), error);
+        }
+        for (RawMoveEvaluation evaluation : result.evaluations()) {
+            add(evaluation, errorsByMove.get(evaluation.moveNumber()));
+        }
+    }
+
+    /**
+     * @param error the error classified on this move, or {@code null}
+     */
+    public void add(RawMoveEvaluation evaluation, GameError error) {
+        ensureCapacity();
+
+        column(Column.KEY_BEFORE).putLong(evaluation.positionKeyBefore());
+        column(Column.KEY_AFTER).putLong(evaluation.positionKeyAfter());
+        column(Column.GAME_ID).putInt(index(evaluation.gameId()));
+        column(Column.EVAL_BEFORE).putInt((int) Math.round(evaluation.evalBefore()));
+        column(Column.EVAL_AFTER).putInt((int) Math.round(evaluation.evalAfter()));
+        column(Column.BEST_EVAL).putInt((int) Math.round(evaluation.bestEval()));
+        column(Column.CP_LOSS).putInt((int) Math.round(evaluation.cpLoss()));
+        column(Column.MATERIAL_BALANCE).putInt(evaluation.materialBalance());
+        column(Column.MATERIAL_DELTA).putInt(evaluation.materialDelta());
+        column(Column.SAN_MOVE).putInt(index(evaluation.sanMove()));
+        column(Column.OPENING_NAME).putInt(index(evaluation.openingName()));
+        column(Column.OPENING_ECO).putInt(index(evaluation.openingEco()));
+        column(Column.FLAGS).putInt(flags(evaluation, error));
+        column(Column.MOVE_NUMBER).putShort((short) evaluation.moveNumber());
+        column(Column.UCI_MOVE).putShort(MoveCodec.encode(evaluation.uciMove()));
+        column(Column.BEST_MOVE).putShort(MoveCodec.encode(evaluation.bestMoveUci()));
+        column(Column.LEGAL_MOVES).putShort((short) evaluation.legalMovesCount());
+
+        if (withFens) {
+            appendFen(rows * 2, evaluation.fenBefore());
+            appendFen(rows * 2 + 1, evaluation.fenAfter());
+        }
+        rows++;
+    }
+
+    private static int flags(RawMoveEvaluation evaluation, GameError error) {
+        int flags = evaluation.phase().ordinal() << PHASE_SHIFT;
+        if (evaluation.playerColor() == Side.BLACK) flags |= BLACK_TO_PLAY;
+        if (evaluation.sideToMoveAfter() == Side.BLACK) flags |= BLACK_TO_MOVE_AFTER;
+        if (evaluation.forced()) flags |= FORCED;
+        if (evaluation.capture()) flags |= CAPTURE;
+        if (evaluation.check()) flags |= CHECK;
+        if (evaluation.promotion()) flags |= PROMOTION;
+        if (evaluation.createsMateThreat()) flags |= CREATES_MATE_THREAT;
+        if (evaluation.inOpeningTheory()) flags |= IN_OPENING_THEORY;
+        if (error != null) {
+            flags |= HAS_ERROR
+                    | error.severity().ordinal() << SEVERITY_SHIFT
+                    | error.category().ordinal() << CATEGORY_SHIFT;
+        }
+        return flags;
+    }
+
+    private ByteBuffer column(Column column) {
+        return columns[column.ordinal()];
+    }
+
+    private void ensureCapacity() {
+        for (Column column : Column.values()) {
+            ByteBuffer buffer = columns[column.ordinal()];
+            if (buffer.remaining() < column.width) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                grown.put(buffer.flip());
+                columns[column.ordinal()] = grown;
+            }
+        }
+        if (withFens && fenEnds.length < (rows + 1) * 2) {
+            fenEnds = Arrays.copyOf(fenEnds, fenEnds.length * 2);
+        }
+    }
+
+    private int index(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return dictionaryIndexes.computeIfAbsent(value, key -> {
+            dictionary.add(key);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private void appendFen(int slot, String fen) {
+        if (fen != null) {
+            fens.writeBytes(fen.getBytes(StandardCharsets.US_ASCII));
+        }
+        fenEnds[slot] = fens.size();
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public void write(Path file) throws IOException {
+        long dictionaryOffset = Column.end(rows);
+
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        writeInt(dictionaryBytes, dictionary.size());
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(dictionaryBytes, bytes.length);
+            dictionaryBytes.writeBytes(bytes);
+        }
+        long fenOffset = dictionaryOffset + dictionaryBytes.size();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(rows)
+                .putInt(withFens ? FLAG_FENS : 0)
+                .putLong(dictionaryOffset)
+                .putLong(withFens ? fenOffset : -1)
+                .flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = Channels.newOutputStream(channel)) {
+            out.write(header.array());
+            for (Column column : Column.values()) {
+                ByteBuffer buffer = columns[column.ordinal()];
+                out.write(buffer.array(), 0, buffer.position());
+            }
+            dictionaryBytes.writeTo(out);
+
+            if (withFens) {
+                ByteArrayOutputStream offsets = new ByteArrayOutputStream((rows * 2 + 1) * 4);
+                writeInt(offsets, 0);
+                for (int i = 0; i < rows * 2; i++) {
+                    writeInt(offsets, fenEnds[i]);
+                }
+                offsets.writeTo(out);
+                fens.writeTo(out);
+            }
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
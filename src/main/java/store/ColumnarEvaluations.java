@@ -0,0 +1,290 @@
+package store;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+import parser.MoveCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a file written by {@link ColumnarEvaluationWriter}. Every field
+ * of the plies is stored as its own contiguous column, so a scan over one column (say cpLoss) reads
+ * only that column and builds no record. Files are limited to 2 GB, some 30 million plies.
+ *
+ * <pre>
+ * header (32): magic | version | rows | flags | dictionary offset (8) | fen offset (8)
+ * columns:     rows x width bytes each, in {@link Column} order
+ * dictionary:  count, then length + UTF-8 bytes of each string (game ids, SAN, opening names)
+ * fens:        optional, rows x 2 + 1 int offsets, then the FEN bytes
+ * </pre>
+ */
+public class ColumnarEvaluations implements AutoCloseable {
+
+    static final int MAGIC = 0x4C474345; // "LGCE"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FLAG_FENS = 1;
+
+    /* flags column bitfield */
+    static final int BLACK_TO_PLAY = 1;
+    static final int BLACK_TO_MOVE_AFTER = 1 << 1;
+    static final int FORCED = 1 << 2;
+    static final int CAPTURE = 1 << 3;
+    static final int CHECK = 1 << 4;
+    static final int PROMOTION = 1 << 5;
+    static final int CREATES_MATE_THREAT = 1 << 6;
+    static final int IN_OPENING_THEORY = 1 << 7;
+    static final int PHASE_SHIFT = 8;       // 2 bits
+    static final int HAS_ERROR = 1 << 10;
+    static final int SEVERITY_SHIFT = 11;   // 2 bits
+    static final int CATEGORY_SHIFT = 13;   // 3 bits
+
+    /**
+     * Columns by decreasing width, which keeps every column aligned on its own width. String
+     * columns hold dictionary indexes, -1 for null; moves hold {@link MoveCodec} codes.
+     */
+    public enum Column {
+        KEY_BEFORE(8),
+        KEY_AFTER(8),
+        GAME_ID(4),
+        EVAL_BEFORE(4),
+        EVAL_AFTER(4),
+        BEST_EVAL(4),
+        CP_LOSS(4),
+        MATERIAL_BALANCE(4),
+        MATERIAL_DELTA(4),
+        SAN_MOVE(4),
+        OPENING_NAME(4),
+        OPENING_ECO(4),
+        FLAGS(4),
+        MOVE_NUMBER(2),
+        UCI_MOVE(2),
+        BEST_MOVE(2),
+        LEGAL_MOVES(2);
+
+        final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+
+        static long offset(Column column, int rows) {
+            long offset = HEADER_SIZE;
+            for (Column previous : values()) {
+                if (previous == column) break;
+                offset += (long) previous.width * rows;
+            }
+            return offset;
+        }
+
+        static long end(int rows) {
+            long offset = HEADER_SIZE;
+            for (Column column : values()) {
+                offset += (long) column.width * rows;
+            }
+            return offset;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int rows;
+    private final String[] dictionary;
+    private final int fenOffset;
+
+    private ColumnarEvaluations(FileChannel channel, MappedByteBuffer data, int rows, String[] dictionary, int fenOffset) {
+        this.channel = channel;
+        this.data = data;
+        this.rows = rows;
+        this.dictionary = dictionary;
+        this.fenOffset = fenOffset;
+    }
+
+    public static ColumnarEvaluations open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Columnar file larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not a columnar evaluation file: " + file);
+            }
+
+            int rows = data.getInt(8);
+            int flags = data.getInt(12);
+            int dictionaryOffset = (int) data.getLong(16);
+            int fenOffset = (flags & FLAG_FENS) != 0 ? (int) data.getLong(24) : -1;
+
+            return new ColumnarEvaluations(channel, data, rows, readDictionary(data, dictionaryOffset), fenOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer data, int offset) {
+        ByteBuffer in = data.duplicate().position(offset);
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public boolean hasFens() {
+        return fenOffset >= 0;
+    }
+
+    /* ==========================
+       COLUMN SCANS
+       ========================== */
+
+    public IntBuffer intColumn(Column column) {
+        checkWidth(column, 4);
+        return slice(column).asIntBuffer();
+    }
+
+    public LongBuffer longColumn(Column column) {
+        checkWidth(column, 8);
+        return slice(column).asLongBuffer();
+    }
+
+    public ShortBuffer shortColumn(Column column) {
+        checkWidth(column, 2);
+        return slice(column).asShortBuffer();
+    }
+
+    public IntBuffer cpLossColumn() {
+        return intColumn(Column.CP_LOSS);
+    }
+
+    private ByteBuffer slice(Column column) {
+        return data.slice((int) Column.offset(column, rows), column.width * rows);
+    }
+
+    private static void checkWidth(Column column, int width) {
+        if (column.width != width) {
+            throw new IllegalArgumentException(column + " is " + column.width + " bytes wide, not " + width);
+        }
+    }
+
+    /* ==========================
+       ROW ACCESS
+       ========================== */
+
+    public int getInt(Column column, int row) {
+        checkWidth(column, 4);
+        return data.getInt(position(column, row));
+    }
+
+    public long getLong(Column column, int row) {
+        checkWidth(column, 8);
+        return data.getLong(position(column, row));
+    }
+
+    public short getShort(Column column, int row) {
+        checkWidth(column, 2);
+        return data.getShort(position(column, row));
+    }
+
+    private int position(Column column, int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        return (int) Column.offset(column, rows) + row * column.width;
+    }
+
+    /**
+     * Rebuilds the evaluation of a row; FENs are null when the file was written without them.
+     */
+    public RawMoveEvaluation evaluation(int row) {
+        int flags = getInt(Column.FLAGS, row);
+        int cpLoss = getInt(Column.CP_LOSS, row);
+        int materialBalance = getInt(Column.MATERIAL_BALANCE, row);
+
+        return new RawMoveEvaluation(
+                string(getInt(Column.GAME_ID, row)),
+                (flags & BLACK_TO_PLAY) != 0 ? Side.BLACK : Side.WHITE,
+                getShort(Column.MOVE_NUMBER, row),
+                MoveCodec.decode(getShort(Column.UCI_MOVE, row)),
+                string(getInt(Column.SAN_MOVE, row)),
+                getInt(Column.EVAL_BEFORE, row),
+                getInt(Column.EVAL_AFTER, row),
+                getInt(Column.BEST_EVAL, row),
+                MoveCodec.decode(getShort(Column.BEST_MOVE, row)),
+                (flags & FORCED) != 0,
+                getShort(Column.LEGAL_MOVES, row),
+                materialBalance,
+                getInt(Column.MATERIAL_DELTA, row),
+                fen(row, 0),
+                fen(row, 1),
+                getLong(Column.KEY_BEFORE, row),
+                getLong(Column.KEY_AFTER, row),
+                cpLoss,
+                materialBalance != 0 ? (double) cpLoss / Math.abs(materialBalance) : cpLoss,
+                GamePhase.values()[(flags >>> PHASE_SHIFT) & 3],
+                (flags & BLACK_TO_MOVE_AFTER) != 0 ? Side.BLACK : Side.WHITE,
+                (flags & CAPTURE) != 0,
+                (flags & CHECK) != 0,
+                (flags & PROMOTION) != 0,
+                (flags & CREATES_MATE_THREAT) != 0,
+                (flags & IN_OPENING_THEORY) != 0,
+                string(getInt(Column.OPENING_NAME, row)),
+                string(getInt(Column.OPENING_ECO, row))
+        );
+    }
+
+    /**
+     * The error classified on a row, or {@code null} when the move was not an error.
+     */
+    public GameError error(int row) {
+        int flags = getInt(Column.FLAGS, row);
+        if ((flags & HAS_ERROR) == 0) {
+            return null;
+        }
+        return GameError.from(evaluation(row),
+                ErrorSeverity.values()[(flags >>> SEVERITY_SHIFT) & 3],
+                ErrorCategory.values()[(flags >>> CATEGORY_SHIFT) & 7]);
+    }
+
+    private String string(int index) {
+        return index < 0 ? null : dictionary[index];
+    }
+
+    private String fen(int row, int which) {
+        if (fenOffset < 0) {
+            return null;
+        }
+        int offsets = fenOffset;
+        int start = data.getInt(offsets + (row * 2 + which) * 4);
+        int end = data.getInt(offsets + (row * 2 + which + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        data.get(offsets + (rows * 2 + 1) * 4 + start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,95 @@
+package store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Per-user record of the newest game up to which every game has been analyzed, so that a new run
+ * only fetches the games played since. The file is small and rewritten whole through a temporary
+ * file, so a crash leaves either the old or the new content.
+ */
+public class WatermarkStore {
+
+    /**
+     * @param createdAt start of the newest analyzed game, epoch milliseconds
+     */
+    public record Watermark(long createdAt, String gameId) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final Map<String, Watermark> watermarks;
+
+    private WatermarkStore(Path file, Map<String, Watermark> watermarks) {
+        this.file = file;
+        this.watermarks = watermarks;
+    }
+
+    public static WatermarkStore open(Path file) throws IOException {
+        Map<String, Watermark> watermarks = new TreeMap<>();
+        if (Files.exists(file)) {
+            watermarks.putAll(MAPPER.readValue(file.toFile(), new TypeReference<Map<String, Watermark>>() {
+            }));
+        }
+        return new WatermarkStore(file, watermarks);
+    }
+
+    public synchronized Optional<Watermark> get(String username) {
+        return Optional.ofNullable(watermarks.get(username.toLowerCase()));
+    }
+
+    /**
+     * Moves the user's watermark forward to the newest game such that it and every older fetched
+     * game are terminal: analyzed, or recorded as impossible to analyze. A game still in neither
+     * state, one the run never finished, holds the watermark back so the next run fetches it again.
+     * Only call it after a complete fetch: a game the run never received cannot hold it back.
+     *
+     * @param fetchedCreatedAt start time of every game fetched by this run, by game id
+     * @param terminal         whether a game needs no further analysis
+     * @return the watermark after the update
+     */
+    public synchronized Optional<Watermark> advance(String username, Map<String, Long> fetchedCreatedAt,
+                                                    Predicate<String> terminal) throws IOException {
+        Watermark current = watermarks.get(username.toLowerCase());
+        Watermark advanced = current;
+
+        List<Map.Entry<String, Long>> oldestFirst = fetchedCreatedAt.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .toList();
+        for (Map.Entry<String, Long> game : oldestFirst) {
+            if (!terminal.test(game.getKey())) {
+                break;
+            }
+            if (advanced == null || game.getValue() > advanced.createdAt()) {
+                advanced = new Watermark(game.getValue(), game.getKey());
+            }
+        }
+
+        if (advanced != null && !advanced.equals(current)) {
+            watermarks.put(username.toLowerCase(), advanced);
+            save();
+        }
+        return Optional.ofNullable(advanced);
+    }
+
+    private void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), watermarks);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,148 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.Piece;
+import com.github.bhlangonijr.chesslib.PieceType;
+import com.github.bhlangonijr.chesslib.Side;
+import com.github.bhlangonijr.chesslib.Square;
+import com.github.bhlangonijr.chesslib.move.Move;
+import domain.Fixtures;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The bitboard tactical patterns against the board-clone ones they replaced, kept here as they
+ * were (and as benchmark.LegacyErrorClassifier still runs them).
+ */
+class AdvancedErrorClassifierTest {
+
+    private final AdvancedErrorClassifier classifier = new AdvancedErrorClassifier();
+
+    /* ==========================
+       PATTERNS BEFORE BITBOARDS
+       ========================== */
+
+    private static boolean legacyPattern(String fen) {
+        Board board = new Board();
+        board.loadFromFen(fen);
+        Side attacker = board.getSideToMove();
+        return legacyHangingPiece(board, attacker.flip()) || legacyFork(board, attacker) || legacyStrongPin(board, attacker);
+    }
+
+    private static boolean legacyHangingPiece(Board board, Side victim) {
+        for (Square sq : Square.values()) {
+            if (sq == Square.NONE) continue;
+            Piece piece = board.getPiece(sq);
+            if (piece == Piece.NONE || piece.getPieceSide() != victim) continue;
+
+            int attackers = Long.bitCount(board.squareAttackedBy(sq, board.getSideToMove()));
+            int defenders = Long.bitCount(board.squareAttackedBy(sq, victim));
+            if (attackers > defenders && value(piece.getPieceType()) >= 300) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean legacyFork(Board board, Side attacker) {
+        for (Move move : board.legalMoves()) {
+            Board copy = board.clone();
+            copy.doMove(move);
+
+            int valuableTargets = 0;
+            for (Square sq : Square.values()) {
+                if (sq == Square.NONE) continue;
+                Piece p = copy.getPiece(sq);
+                if (p == Piece.NONE || p.getPieceSide() == attacker || p.getPieceType() == PieceType.KING) continue;
+                if (value(p.getPieceType()) >= 500 && copy.isSquareAttackedBy(List.of(sq), attacker)) {
+                    valuableTargets++;
+                }
+            }
+            if (valuableTargets >= 2) return true;
+        }
+        return false;
+    }
+
+    private static boolean legacyStrongPin(Board board, Side attacker) {
+        for (Square sq : Square.values()) {
+            if (sq == Square.NONE) continue;
+            Piece p = board.getPiece(sq);
+            if (p == Piece.NONE || p.getPieceSide() != attacker.flip()) continue;
+            if (value(p.getPieceType()) >= 300 && board.isSquareAttackedBy(List.of(sq), attacker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int value(PieceType type) {
+        return switch (type) {
+            case PAWN -> 100;
+            case KNIGHT, BISHOP -> 300;
+            case ROOK -> 500;
+            case QUEEN -> 900;
+            default -> 0;
+        };
+    }
+
+    /* ==========================
+       EVALUATIONS
+       ========================== */
+
+    // a middlegame mistake that only the board patterns can make tactical: quiet move, small swing,
+    // level material, plenty of legal moves
+    private static RawMoveEvaluation quietMistake(String fenAfter) {
+        RawMoveEvaluation e = Fixtures.evaluation("game", Side.WHITE, 20, 120);
+        return new RawMoveEvaluation(e.gameId(), e.playerColor(), e.moveNumber(), e.uciMove(), e.sanMove(),
+                0, -120, 0, e.bestMoveUci(), false, 30, 0, 0, e.fenBefore(), fenAfter,
+                e.positionKeyBefore(), e.positionKeyAfter(), 120, 120, GamePhase.MIDDLEGAME,
+                Side.BLACK, false, false, false, false, false, null, null);
+    }
+
+    @Test
+    void tacticalExactlyWhereTheBoardClonePatternsFoundIt() {
+        int tactical = 0;
+        for (String fen : Fixtures.randomPositions(40, 100, 11)) {
+            GameError error = classifier.classify(quietMistake(fen));
+
+            boolean expected = legacyPattern(fen);
+            assertEquals(expected ? ErrorCategory.TACTICAL : ErrorCategory.STRATEGIC, error.category(), fen);
+            if (expected) tactical++;
+        }
+        // both outcomes are exercised
+        assertTrue(tactical > 0);
+    }
+
+    @Test
+    void hangingKnightIsTactical() {
+        // black to move: the white knight on e5 is attacked by the d6 pawn and defended by nothing
+        String fen = "4k3/8/3p4/4N3/8/8/8/4K3 b - - 0 1";
+
+        assertTrue(legacyPattern(fen));
+        assertEquals(ErrorCategory.TACTICAL, classifier.classify(quietMistake(fen)).category());
+    }
+
+    @Test
+    void quietPositionIsNotTactical() {
+        String fen = "4k3/pppp4/8/8/8/8/4PPPP/4K3 b - - 0 1";
+
+        assertFalse(legacyPattern(fen));
+        assertEquals(ErrorCategory.STRATEGIC, classifier.classify(quietMistake(fen)).category());
+    }
+
+    @Test
+    void severityFollowsTheLoss() {
+        assertNull(classifier.classify(Fixtures.evaluation("game", Side.WHITE, 20, 49)));
+        assertEquals(ErrorSeverity.INACCURACY, classifier.classify(Fixtures.evaluation("game", Side.WHITE, 20, 50)).severity());
+        assertEquals(ErrorSeverity.MISTAKE, classifier.classify(Fixtures.evaluation("game", Side.WHITE, 20, 100)).severity());
+        assertEquals(ErrorSeverity.BLUNDER, classifier.classify(Fixtures.evaluation("game", Side.WHITE, 20, 300)).severity());
+    }
+}
@@ -0,0 +1,280 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.Fixtures;
+import domain.GameError;
+import domain.LichessGame;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisPipelineTest {
+
+    private static final String PGN = "1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. c3 Nf6 5. d4 exd4 6. cxd4 Bb4+ 7. Bd2 Bxd2+ 8. Nbxd2 d5";
+
+    /**
+     * Engine without a process: every move of the player gets a triage evaluation whose cpLoss
+     * depends on its number, and every third one is searched again and loses 100 more.
+     */
+    private static final String CRASHING_GAME = "crashing";
+
+    private static final class ScriptedEngine extends StockfishClient {
+
+        ScriptedEngine() {
+            super(EngineConfig.defaults(), null, null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return true;
+        }
+
+        @Override
+        public AdaptiveSearch.Evaluations analyzeMoves(String gameId, List<String> moves, AdaptiveSearch search,
+                                                       Side targetColor, Consumer<RawMoveEvaluation> onTriage,
+                                                       Consumer<RawMoveEvaluation> onFull) {
+            if (gameId.equals(CRASHING_GAME)) {
+                throw new IllegalStateException("engine crashed");
+            }
+            List<RawMoveEvaluation> triage = new ArrayList<>();
+            for (int move = 1; move <= moves.size() / 2; move++) {
+                RawMoveEvaluation evaluation = Fixtures.evaluation(gameId, targetColor, move, move * 37 % 300);
+                triage.add(evaluation);
+                if (search.isTwoTier()) {
+                    onTriage.accept(evaluation);
+                } else {
+                    onFull.accept(evaluation);
+                }
+            }
+            if (!search.isTwoTier()) {
+                return new AdaptiveSearch.Evaluations(triage, triage, 0);
+            }
+
+            List<RawMoveEvaluation> full = new ArrayList<>();
+            int researched = 0;
+            for (RawMoveEvaluation evaluation : triage) {
+                RawMoveEvaluation result = evaluation;
+                if (evaluation.moveNumber() % 3 == 0) {
+                    result = Fixtures.evaluation(gameId, targetColor, evaluation.moveNumber(), evaluation.cpLoss() + 100);
+                    researched++;
+                }
+                full.add(result);
+                onFull.accept(result);
+            }
+            return new AdaptiveSearch.Evaluations(triage, full, researched);
+        }
+    }
+
+    /**
+     * Errors from 50cp, after a random delay so that classifications finish out of order.
+     */
+    private static final class SlowClassifier implements ErrorClassifier {
+
+        private final Map<RawMoveEvaluation, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        @Override
+        public GameError classify(RawMoveEvaluation evaluation) {
+            calls.computeIfAbsent(evaluation, key -> new AtomicInteger()).incrementAndGet();
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (evaluation.cpLoss() < 50) {
+                return null;
+            }
+            ErrorSeverity severity = evaluation.cpLoss() >= 300 ? ErrorSeverity.BLUNDER
+                    : evaluation.cpLoss() >= 100 ? ErrorSeverity.MISTAKE : ErrorSeverity.INACCURACY;
+            return GameError.from(evaluation, severity, ErrorCategory.TACTICAL);
+        }
+
+        int calls() {
+            return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+
+    private static List<LichessGame> games(int count) {
+        List<LichessGame> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            games.add(new LichessGame(PGN, "game" + i, "me", "them", 1500, 1500, 1_700_000_000_000L + i));
+        }
+        return games;
+    }
+
+    private static List<AnalysisResult> run(AdaptiveSearch search, ErrorClassifier classifier,
+                                            LiveErrorAggregates aggregates, int games) throws Exception {
+        ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try (EnginePool pool = new EnginePool(2, ScriptedEngine::new)) {
+            AnalysisPipeline pipeline = new AnalysisPipeline(pool, classifier, search, game -> Side.WHITE,
+                    new AnalysisPipeline.Config(1, 4, 4), ioExecutor, aggregates);
+            List<AnalysisResult> results = new ArrayList<>();
+            pipeline.run(games(games).stream(), results::add);
+            return results;
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    private static List<Integer> moveNumbers(List<GameError> errors) {
+        return errors.stream().map(GameError::moveNumber).toList();
+    }
+
+    @Test
+    void errorsComeOutInMoveOrderWhateverClassificationFinishesFirst() throws Exception {
+        SlowClassifier classifier = new SlowClassifier();
+        LiveErrorAggregates aggregates = new LiveErrorAggregates(4);
+
+        List<AnalysisResult> results = run(AdaptiveSearch.singleTier(SearchLimit.depth(10)), classifier, aggregates, 12);
+
+        assertEquals(12, results.size());
+        List<Integer> expected = new ArrayList<>();
+        for (int move = 1; move <= 8; move++) {
+            if (move * 37 % 300 >= 50) expected.add(move);
+        }
+        for (AnalysisResult result : results) {
+            assertEquals(expected, moveNumbers(result.errors()));
+            assertSame(result.errors(), result.triageErrors());
+        }
+        assertEquals(12 * 8, classifier.calls());
+        assertEquals(12, aggregates.snapshot().analyzedGames());
+        assertEquals(12L * expected.size(), aggregates.snapshot().count());
+        assertEquals(12, aggregates.games());
+        assertEquals(aggregates.snapshot().count(), aggregates.errors());
+        assertEquals(aggregates.snapshot().averageCpLoss(), aggregates.averageCpLoss(), 1e-9);
+    }
+
+    @Test
+    void twoTierClassifiesBothTiersAndOnlyTheResearchedMovesTwice() throws Exception {
+        SlowClassifier classifier = new SlowClassifier();
+
+        List<AnalysisResult> results = run(AdaptiveSearch.twoTier(SearchLimit.depth(6), SearchLimit.depth(10)),
+                classifier, null, 5);
+
+        List<Integer> triageExpected = new ArrayList<>();
+        List<Integer> fullExpected = new ArrayList<>();
+        for (int move = 1; move <= 8; move++) {
+            int cpLoss = move * 37 % 300;
+            if (cpLoss >= 50) triageExpected.add(move);
+            if ((move % 3 == 0 ? cpLoss + 100 : cpLoss) >= 50) fullExpected.add(move);
+        }
+
+        assertEquals(5, results.size());
+        for (AnalysisResult result : results) {
+            assertEquals(triageExpected, moveNumbers(result.triageErrors()));
+            assertEquals(fullExpected, moveNumbers(result.errors()));
+        }
+        // eight triage evaluations and the two researched ones, per game
+        assertEquals(5 * (8 + 2), classifier.calls());
+    }
+
+    @Test
+    void sameResultsWhateverTheNumberOfClassifyWorkers() throws Exception {
+        ErrorClassifier classifier = new SlowClassifier();
+        List<AnalysisResult> reference = null;
+        for (int workers : new int[]{1, 3, 8}) {
+            ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            try (EnginePool pool = new EnginePool(2, ScriptedEngine::new)) {
+                AnalysisPipeline pipeline = new AnalysisPipeline(pool, classifier,
+                        AdaptiveSearch.twoTier(SearchLimit.depth(6), SearchLimit.depth(10)), game -> Side.WHITE,
+                        new AnalysisPipeline.Config(1, workers, 4), ioExecutor, null);
+                List<AnalysisResult> results = new ArrayList<>();
+                pipeline.run(games(6).stream(), results::add);
+                results.sort((a, b) -> a.gameId().compareTo(b.gameId()));
+                if (reference == null) {
+                    reference = results;
+                } else {
+                    assertEquals(reference, results);
+                }
+            } finally {
+                ioExecutor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void sourceFailureReachesTheCallerAfterTheGamesFetchedBeforeIt() throws Exception {
+        Iterator<LichessGame> fetched = games(3).iterator();
+        Iterator<LichessGame> failing = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (!fetched.hasNext()) {
+                    throw new UncheckedIOException(new IOException("connection reset"));
+                }
+                return true;
+            }
+
+            @Override
+            public LichessGame next() {
+                return fetched.next();
+            }
+        };
+
+        ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try (EnginePool pool = new EnginePool(2, ScriptedEngine::new)) {
+            AnalysisPipeline pipeline = new AnalysisPipeline(pool, new SlowClassifier(),
+                    AdaptiveSearch.singleTier(SearchLimit.depth(10)), game -> Side.WHITE,
+                    new AnalysisPipeline.Config(1, 2, 4), ioExecutor, null);
+            List<AnalysisResult> results = new ArrayList<>();
+
+            UncheckedIOException failure = assertThrows(UncheckedIOException.class, () -> pipeline.run(
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(failing, Spliterator.ORDERED), false),
+                    results::add));
+            assertEquals("connection reset", failure.getCause().getMessage());
+            assertEquals(3, results.size());
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void onlyGamesNoRunCanAnalyzeAreReportedAsRejected() throws Exception {
+        List<LichessGame> games = new ArrayList<>(games(3));
+        games.add(new LichessGame(PGN, CRASHING_GAME, "me", "them", 1500, 1500, 1_700_000_000_000L));
+        games.add(new LichessGame(PGN, "someone else's", "x", "y", 1500, 1500, 1_700_000_000_000L));
+        games.add(new LichessGame("1. e4 Zz9", "undecodable", "me", "them", 1500, 1500, 1_700_000_000_000L));
+
+        ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try (EnginePool pool = new EnginePool(2, ScriptedEngine::new)) {
+            AnalysisPipeline pipeline = new AnalysisPipeline(pool, new SlowClassifier(),
+                    AdaptiveSearch.singleTier(SearchLimit.depth(10)),
+                    game -> game.gameId().startsWith("someone") ? null : Side.WHITE,
+                    new AnalysisPipeline.Config(1, 2, 4), ioExecutor, null);
+            List<AnalysisResult> results = new ArrayList<>();
+            Map<String, String> rejected = new ConcurrentHashMap<>();
+            pipeline.run(games.stream(), results::add, rejected::put);
+
+            assertEquals(3, results.size());
+            // the engine crash is left for the next run to retry
+            assertEquals(Map.of("someone else's", "user not found", "undecodable", "decode: Invalid SAN move: Zz9"),
+                    rejected);
+            assertEquals(1, pipeline.stageStats().stream()
+                    .filter(stats -> stats.stage().equals("engine")).findFirst().orElseThrow().failed());
+        } finally {
+            ioExecutor.shutdown();
+        }
+    }
+}
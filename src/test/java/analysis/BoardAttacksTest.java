@@ -0,0 +1,61 @@
+package analysis;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.Side;
+import com.github.bhlangonijr.chesslib.Square;
+import domain.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardAttacksTest {
+
+    private static final List<String> POSITIONS = Fixtures.randomPositions(60, 120, 7);
+
+    @Test
+    void attackersAreThoseChesslibFinds() {
+        Board board = new Board();
+        for (String fen : POSITIONS) {
+            board.loadFromFen(fen);
+            for (int square = 0; square < 64; square++) {
+                for (Side side : Side.values()) {
+                    assertEquals(board.squareAttackedBy(Square.values()[square], side),
+                            BoardAttacks.attackersTo(board, square, side), fen + " " + Square.values()[square] + " " + side);
+                }
+            }
+        }
+    }
+
+    @Test
+    void attackedSquaresAreThoseWithAnAttacker() {
+        Board board = new Board();
+        for (String fen : POSITIONS) {
+            board.loadFromFen(fen);
+            for (Side side : Side.values()) {
+                long expected = 0;
+                for (int square = 0; square < 64; square++) {
+                    if (board.squareAttackedBy(Square.values()[square], side) != 0) {
+                        expected |= 1L << square;
+                    }
+                }
+                assertEquals(expected, BoardAttacks.attackedBy(board, side), fen + " " + side);
+            }
+        }
+    }
+
+    @Test
+    void slidersStopAtTheFirstPieceTheyMeet() {
+        // rook on d4, blockers on d6 and f4
+        long occupied = 1L << 27 | 1L << 43 | 1L << 29;
+        long expected = 1L << 35 | 1L << 43        // d5, d6
+                | 1L << 19 | 1L << 11 | 1L << 3    // d3, d2, d1
+                | 1L << 28 | 1L << 29              // e4, f4
+                | 1L << 26 | 1L << 25 | 1L << 24;  // c4, b4, a4
+        assertEquals(expected, BoardAttacks.rookAttacks(27, occupied));
+
+        // bishop on a1 of an empty board sees the whole long diagonal
+        assertEquals(0x8040201008040200L, BoardAttacks.bishopAttacks(0, 1L));
+    }
+}
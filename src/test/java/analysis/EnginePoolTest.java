@@ -0,0 +1,128 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnginePoolTest {
+
+    // engine without a process behind it, counting starts and stops
+    private static final class CountingEngine extends StockfishClient {
+
+        private final AtomicInteger running;
+        private boolean started;
+
+        CountingEngine(AtomicInteger running) {
+            super(EngineConfig.defaults(), null, null);
+            this.running = running;
+        }
+
+        @Override
+        public void start() {
+            started = true;
+            running.incrementAndGet();
+        }
+
+        @Override
+        public void stop() {
+            if (started) {
+                started = false;
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return started;
+        }
+    }
+
+    @Test
+    void stopsTheStartedEnginesWhenOneFailsToStart() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> new EnginePool(4, () -> {
+            if (created.incrementAndGet() == 3) {
+                throw new IllegalStateException("stockfish not found");
+            }
+            return new CountingEngine(running);
+        }));
+
+        assertEquals(3, created.get());
+        assertEquals(0, running.get());
+    }
+
+    @Test
+    void closeStopsLeasedEnginesAndFailsLaterAcquires() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        EnginePool pool = new EnginePool(2, () -> new CountingEngine(running));
+
+        StockfishClient leased = pool.acquire();
+        pool.close();
+
+        assertEquals(0, running.get());
+        assertFalse(leased.isHealthy());
+        assertThrows(IllegalStateException.class, pool::acquire);
+
+        // released after the close: not handed out again
+        pool.release(leased);
+        assertThrows(IllegalStateException.class, pool::acquire);
+    }
+
+    @Test
+    void closeWakesUpCallersWaitingForAnEngine() throws Exception {
+        EnginePool pool = new EnginePool(1, () -> new CountingEngine(new AtomicInteger()));
+        pool.acquire();
+
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<StockfishClient> blocked = CompletableFuture.supplyAsync(() -> {
+            waiting.countDown();
+            try {
+                return pool.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        waiting.await();
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        pool.close();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void releasedEngineGoesToTheNextCaller() throws Exception {
+        List<StockfishClient> engines = new ArrayList<>();
+        try (EnginePool pool = new EnginePool(1, () -> {
+            CountingEngine engine = new CountingEngine(new AtomicInteger());
+            engines.add(engine);
+            return engine;
+        })) {
+            StockfishClient first = pool.acquire();
+            CompletableFuture<StockfishClient> next = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.acquire();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            pool.release(first);
+
+            assertSame(engines.getFirst(), next.get(5, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package analysis;
+
+import domain.PositionEval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationCacheTest {
+
+    private static final int SLOTS = 16;
+
+    @TempDir
+    Path directory;
+
+    // keys that are multiples of the slot count all fall in the first bucket
+    private static long sameBucket(int n) {
+        return (long) n * SLOTS;
+    }
+
+    @Test
+    void entriesSurviveReopening() throws Exception {
+        Path file = directory.resolve("evaluations.cache");
+        PositionEval quiet = new PositionEval("e2e4", 35, false, 18);
+        PositionEval mate = new PositionEval("h7h8q", -3, true, 22);
+        PositionEval noMove = new PositionEval(null, -412, false, 12);
+
+        try (EvaluationCache cache = EvaluationCache.open(file, SLOTS)) {
+            cache.put(0x9D39247E33776D41L, 18, quiet);
+            cache.put(0x2AF7398005AAA5C7L, 22, mate);
+            cache.put(0x44DB015024623547L, 12, noMove);
+        }
+        assertEquals(16 + SLOTS * 16L, Files.size(file));
+
+        try (EvaluationCache cache = EvaluationCache.open(file, SLOTS)) {
+            assertEquals(Optional.of(quiet), cache.get(0x9D39247E33776D41L, 18));
+            assertEquals(Optional.of(mate), cache.get(0x2AF7398005AAA5C7L, 22));
+            assertEquals(Optional.of(noMove), cache.get(0x44DB015024623547L, 12));
+            assertEquals(3, cache.getHits());
+        }
+    }
+
+    @Test
+    void scoreIsRoundedToWholeCentipawns() throws Exception {
+        try (EvaluationCache cache = EvaluationCache.open(directory.resolve("evaluations.cache"), SLOTS)) {
+            cache.put(7, 10, new PositionEval("g1f3", 12.6, false, 10));
+
+            assertEquals(13.0, cache.get(7, 10).orElseThrow().scoreCp());
+        }
+    }
+
+    @Test
+    void deeperEntryAnswersShallowerRequestsOnly() throws Exception {
+        try (EvaluationCache cache = EvaluationCache.open(directory.resolve("evaluations.cache"), SLOTS)) {
+            cache.put(42, 16, new PositionEval("d2d4", 20, false, 16));
+
+            assertTrue(cache.get(42, 12).isPresent());
+            assertTrue(cache.get(42, 16).isPresent());
+            assertTrue(cache.get(42, 17).isEmpty());
+            assertEquals(2, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    void shallowerResultDoesNotReplaceDeeperOne() throws Exception {
+        try (EvaluationCache cache = EvaluationCache.open(directory.resolve("evaluations.cache"), SLOTS)) {
+            cache.put(42, 16, new PositionEval("d2d4", 20, false, 16));
+            cache.put(42, 8, new PositionEval("c2c4", -50, false, 8));
+            assertEquals("d2d4", cache.get(42, 8).orElseThrow().bestMoveUci());
+
+            cache.put(42, 20, new PositionEval("g1f3", 25, false, 20));
+            assertEquals("g1f3", cache.get(42, 8).orElseThrow().bestMoveUci());
+        }
+    }
+
+    @Test
+    void fullBucketReplacesItsShallowestEntry() throws Exception {
+        try (EvaluationCache cache = EvaluationCache.open(directory.resolve("evaluations.cache"), SLOTS)) {
+            cache.put(sameBucket(1), 20, new PositionEval("a2a3", 1, false, 20));
+            cache.put(sameBucket(2), 6, new PositionEval("b2b3", 2, false, 6));
+            cache.put(sameBucket(3), 14, new PositionEval("c2c3", 3, false, 14));
+            cache.put(sameBucket(4), 10, new PositionEval("d2d3", 4, false, 10));
+
+            cache.put(sameBucket(5), 12, new PositionEval("e2e3", 5, false, 12));
+
+            assertTrue(cache.get(sameBucket(2), 1).isEmpty());
+            for (int n : new int[]{1, 3, 4, 5}) {
+                assertTrue(cache.get(sameBucket(n), 1).isPresent());
+            }
+        }
+    }
+
+    @Test
+    void fileOfAnotherSizeStartsEmpty() throws Exception {
+        Path file = directory.resolve("evaluations.cache");
+        try (EvaluationCache cache = EvaluationCache.open(file, SLOTS)) {
+            cache.put(42, 16, new PositionEval("d2d4", 20, false, 16));
+        }
+
+        try (EvaluationCache cache = EvaluationCache.open(file, SLOTS * 2)) {
+            assertTrue(cache.get(42, 1).isEmpty());
+        }
+        assertEquals(16 + SLOTS * 2 * 16L, Files.size(file));
+    }
+
+    @Test
+    void slotCountMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> EvaluationCache.open(directory.resolve("a.cache"), 24));
+        assertThrows(IllegalArgumentException.class, () -> EvaluationCache.open(directory.resolve("b.cache"), 2));
+    }
+}
@@ -0,0 +1,59 @@
+package analysis;
+
+import domain.PositionEval;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionTableTest {
+
+    private static final SearchLimit LIMIT = SearchLimit.depth(12);
+    private static final PositionEval EVAL = new PositionEval("e2e4", 30, false, 12);
+
+    @Test
+    void finishedSearchIsReused() {
+        PositionTable table = new PositionTable();
+
+        assertEquals(EVAL, table.evaluate(1L, LIMIT, () -> EVAL));
+        assertEquals(EVAL, table.evaluate(1L, LIMIT, () -> {
+            throw new AssertionError("searched twice");
+        }));
+        assertEquals(EVAL, table.evaluate(2L, LIMIT, () -> EVAL));
+
+        assertEquals(2, table.getSearches());
+        assertEquals(1, table.getReused());
+        assertEquals(1, table.getAvoidedSearches());
+    }
+
+    @Test
+    void searchRetriedAfterTheOneWaitedOnFailedIsCounted() throws Exception {
+        PositionTable table = new PositionTable();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch crash = new CountDownLatch(1);
+
+        CompletableFuture<PositionEval> crashing = CompletableFuture.supplyAsync(() -> table.evaluate(1L, LIMIT, () -> {
+            started.countDown();
+            try {
+                crash.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("engine crashed");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<PositionEval> waiting = CompletableFuture.supplyAsync(() -> table.evaluate(1L, LIMIT, () -> EVAL));
+        // the second request is waiting on the first search, or about to
+        Thread.sleep(50);
+        crash.countDown();
+
+        assertEquals(EVAL, waiting.get(5, TimeUnit.SECONDS));
+        assertThrows(Exception.class, crashing::join);
+        assertEquals(2, table.getSearches());
+        assertEquals(0, table.getAvoidedSearches());
+    }
+}
@@ -0,0 +1,78 @@
+package analysis;
+
+import domain.PositionEval;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockfishClientTest {
+
+    @Test
+    void centipawnScoreOfTheDeepestLine() {
+        PositionEval eval = StockfishClient.parseSearch(List.of(
+                "info string NNUE evaluation using nn-1111cefa1111.nnue",
+                "info depth 1 seldepth 1 multipv 1 score cp 18 nodes 20 nps 10000 time 2 pv e2e4",
+                "info depth 2 seldepth 2 multipv 1 score cp -12 nodes 51 nps 25500 time 2 pv d2d4 d7d5",
+                "info depth 3 seldepth 3 multipv 1 score cp 35 nodes 154 nps 51333 time 3 pv e2e4 e7e5 g1f3",
+                "bestmove e2e4 ponder e7e5"));
+
+        assertEquals(new PositionEval("e2e4", 35, false, 3), eval);
+    }
+
+    @Test
+    void mateScoresCountDownFromTheMateValue() {
+        PositionEval mating = StockfishClient.parseSearch(List.of(
+                "info depth 12 seldepth 4 multipv 1 score mate 2 nodes 900 pv d1h5 g7g6 h5e5",
+                "bestmove d1h5"));
+        PositionEval mated = StockfishClient.parseSearch(List.of(
+                "info depth 12 seldepth 6 multipv 1 score mate -3 nodes 1200 pv g8f6 d1h5 f6h5",
+                "bestmove g8f6"));
+
+        assertEquals(new PositionEval("d1h5", 10_000 - 2, true, 12), mating);
+        assertEquals(new PositionEval("g8f6", -(10_000 - 3), true, 12), mated);
+    }
+
+    @Test
+    void checkmatedPositionHasNoBestMove() {
+        PositionEval eval = StockfishClient.parseSearch(List.of(
+                "info depth 0 score mate 0",
+                "bestmove (none)"));
+
+        assertEquals(new PositionEval(null, -10_000, true, 0), eval);
+    }
+
+    @Test
+    void boundsFromAFailedAspirationWindowAreIgnored() {
+        PositionEval eval = StockfishClient.parseSearch(List.of(
+                "info depth 18 seldepth 24 multipv 1 score cp 40 nodes 200000 pv e2e4 e7e5",
+                "info depth 19 seldepth 25 multipv 1 score cp 75 lowerbound nodes 260000 pv e2e4",
+                "info depth 19 seldepth 25 multipv 1 score cp 10 upperbound nodes 300000 pv e2e4",
+                "info depth 19 seldepth 27 multipv 1 score cp 52 nodes 340000 pv e2e4 c7c5",
+                "info depth 20 seldepth 27 multipv 1 score cp 90 lowerbound nodes 400000 pv e2e4",
+                "bestmove e2e4 ponder c7c5"));
+
+        assertEquals(new PositionEval("e2e4", 52, false, 19), eval);
+    }
+
+    @Test
+    void scoreIsThatOfTheFirstPrincipalVariation() {
+        // with MultiPV, each depth ends with its weaker lines
+        PositionEval eval = StockfishClient.parseSearch(List.of(
+                "info depth 14 seldepth 19 multipv 1 score cp 30 nodes 90000 pv e2e4 e7e5",
+                "info depth 14 seldepth 18 multipv 2 score cp 22 nodes 90000 pv d2d4 d7d5",
+                "info depth 15 seldepth 20 multipv 2 score cp 15 nodes 120000 pv d2d4 g8f6",
+                "info depth 15 seldepth 21 multipv 3 score mate -9 nodes 120000 pv f2f3 e7e5",
+                "info depth 15 seldepth 20 multipv 1 score cp 28 nodes 120000 pv e2e4 c7c5",
+                "info depth 16 seldepth 22 multipv 2 score cp 12 nodes 160000 pv d2d4 d7d5",
+                "bestmove e2e4 ponder c7c5"));
+
+        assertEquals(new PositionEval("e2e4", 28, false, 15), eval);
+    }
+
+    @Test
+    void noScoreWithoutAnInfoLine() {
+        assertEquals(new PositionEval("e2e4", 0, false, 0), StockfishClient.parseSearch(List.of("bestmove e2e4")));
+    }
+}
@@ -0,0 +1,91 @@
+package domain;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.Side;
+import com.github.bhlangonijr.chesslib.move.Move;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Evaluations and errors with every field filled, for tests that only care about a few of them.
+ */
+public final class Fixtures {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/3P1N2/PPP2PPP/RNBQK2R w KQkq - 1 5",
+            "8/5k2/8/3K4/8/8/4P3/8 w - - 0 60"
+    };
+
+    private Fixtures() {
+    }
+
+    public static RawMoveEvaluation evaluation(String gameId, Side color, int moveNumber, double cpLoss) {
+        String fenBefore = FENS[moveNumber % FENS.length];
+        String fenAfter = FENS[(moveNumber + 1) % FENS.length];
+        double evalBefore = 35 - moveNumber;
+        return new RawMoveEvaluation(
+                gameId,
+                color,
+                moveNumber,
+                "e2e4",
+                "e4",
+                evalBefore,
+                evalBefore - cpLoss,
+                evalBefore,
+                moveNumber % 5 == 0 ? null : "g1f3",
+                moveNumber % 7 == 0,
+                20 + moveNumber % 10,
+                100 * (moveNumber % 3 - 1),
+                moveNumber % 2 == 0 ? 0 : -320,
+                fenBefore,
+                fenAfter,
+                0x9D39247E33776D41L * moveNumber + gameId.hashCode(),
+                0x2AF7398005AAA5C7L * moveNumber - gameId.hashCode(),
+                cpLoss,
+                cpLoss / 3,
+                GamePhase.values()[moveNumber % GamePhase.values().length],
+                color.flip(),
+                moveNumber % 2 == 0,
+                moveNumber % 3 == 0,
+                moveNumber % 11 == 0,
+                moveNumber % 13 == 0,
+                moveNumber < 8,
+                moveNumber < 8 ? "Italian Game" : null,
+                moveNumber < 8 ? "C50" : null
+        );
+    }
+
+    public static GameError error(String gameId, int moveNumber, ErrorSeverity severity, ErrorCategory category,
+                                  GamePhase phase, Side color, double cpLoss) {
+        RawMoveEvaluation evaluation = evaluation(gameId, color, moveNumber, cpLoss);
+        return new GameError(gameId, moveNumber, color, severity, category, phase, cpLoss,
+                evaluation.evalBefore(), evaluation.evalAfter(), evaluation.bestEval(), evaluation.uciMove(),
+                evaluation.sanMove(), evaluation.bestMoveUci(), evaluation.fenBefore(), evaluation.fenAfter(),
+                evaluation.openingName(), evaluation.openingEco());
+    }
+
+    /**
+     * The FEN of every position of random legal games, the starting one excluded.
+     */
+    public static List<String> randomPositions(int games, int maxPlies, long seed) {
+        Random random = new Random(seed);
+        List<String> positions = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            Board board = new Board();
+            for (int ply = 0; ply < maxPlies; ply++) {
+                List<Move> legalMoves = board.legalMoves();
+                if (legalMoves.isEmpty()) break;
+                board.doMove(legalMoves.get(random.nextInt(legalMoves.size())));
+                positions.add(board.getFen());
+            }
+        }
+        return positions;
+    }
+}
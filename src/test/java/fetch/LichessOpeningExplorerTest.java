@@ -0,0 +1,200 @@
+package fetch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import domain.OpeningResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The remote lookups against a local stub of the explorer endpoint.
+ */
+class LichessOpeningExplorerTest {
+
+    private static final String SICILIAN = "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2";
+    private static final String FRENCH = "rnbqkbnr/pppp1ppp/4p3/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2";
+    private static final String CARO_KANN = "rnbqkbnr/pp1ppppp/2p5/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2";
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Map<String, AtomicInteger> requestsByFen = new ConcurrentHashMap<>();
+    // statuses answered before the normal answer, one per request
+    private final ConcurrentLinkedQueue<Integer> failures = new ConcurrentLinkedQueue<>();
+    private volatile String retryAfter = "0";
+    private volatile CountDownLatch received = new CountDownLatch(0);
+    private volatile CountDownLatch answer = new CountDownLatch(0);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/masters", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String fen = URLDecoder.decode(query.substring(query.indexOf("fen=") + 4), StandardCharsets.UTF_8);
+        requests.incrementAndGet();
+        requestsByFen.computeIfAbsent(fen, key -> new AtomicInteger()).incrementAndGet();
+        received.countDown();
+
+        try {
+            answer.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Integer failure = failures.poll();
+        if (failure != null) {
+            exchange.getResponseHeaders().add("Retry-After", retryAfter);
+            exchange.sendResponseHeaders(failure, -1);
+            exchange.close();
+            return;
+        }
+
+        String name = fen.equals(SICILIAN) ? "Sicilian Defense" : fen.equals(FRENCH) ? "French Defense" : null;
+        String body = name != null
+                ? "{\"opening\":{\"eco\":\"B00\",\"name\":\"" + name + "\"},\"white\":10,\"draws\":5,\"black\":7}"
+                : "{\"opening\":null,\"white\":0,\"draws\":0,\"black\":0}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private LichessOpeningExplorer explorer(Duration requestInterval, int cacheSize) {
+        String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/masters";
+        return new LichessOpeningExplorer(OpeningBook.empty(), true, url, HttpClient.newHttpClient(),
+                requestInterval, cacheSize, executor);
+    }
+
+    // the explorer only uses the key to cache, any distinct value per position does
+    private static long key(String fen) {
+        return fen.hashCode();
+    }
+
+    private static String name(Optional<OpeningResponse> opening) {
+        return opening.map(response -> response.opening().name()).orElse(null);
+    }
+
+    @Test
+    void concurrentLookupsOfOnePositionSendOneRequest() throws Exception {
+        LichessOpeningExplorer explorer = explorer(Duration.ZERO, 100);
+        received = new CountDownLatch(1);
+        answer = new CountDownLatch(1);
+
+        List<CompletableFuture<Optional<OpeningResponse>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(explorer.getOpeningAsync(key(SICILIAN), SICILIAN));
+        }
+
+        // the first request is held until the other lookups had time to find it in flight
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        answer.countDown();
+
+        for (CompletableFuture<Optional<OpeningResponse>> lookup : lookups) {
+            assertEquals("Sicilian Defense", name(lookup.get(5, TimeUnit.SECONDS)));
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void answersAreCachedAndTheLeastRecentlyUsedIsEvicted() {
+        LichessOpeningExplorer explorer = explorer(Duration.ZERO, 2);
+
+        assertEquals("Sicilian Defense", name(explorer.getOpening(key(SICILIAN), SICILIAN)));
+        assertEquals("French Defense", name(explorer.getOpening(key(FRENCH), FRENCH)));
+        // cached, and now more recently used than the French
+        assertEquals("Sicilian Defense", name(explorer.getOpening(key(SICILIAN), SICILIAN)));
+        // empty answers are cached too; this one evicts the French
+        assertNull(name(explorer.getOpening(key(CARO_KANN), CARO_KANN)));
+        assertNull(name(explorer.getOpening(key(CARO_KANN), CARO_KANN)));
+        assertEquals("Sicilian Defense", name(explorer.getOpening(key(SICILIAN), SICILIAN)));
+        assertEquals("French Defense", name(explorer.getOpening(key(FRENCH), FRENCH)));
+
+        assertEquals(1, requestsByFen.get(SICILIAN).get());
+        assertEquals(2, requestsByFen.get(FRENCH).get());
+        assertEquals(1, requestsByFen.get(CARO_KANN).get());
+    }
+
+    @Test
+    void rateLimitedRequestIsRetriedAfterTheRetryAfterDelay() {
+        LichessOpeningExplorer explorer = explorer(Duration.ZERO, 100);
+        failures.add(429);
+        retryAfter = "1";
+
+        long start = System.nanoTime();
+        Optional<OpeningResponse> opening = explorer.getOpening(key(SICILIAN), SICILIAN);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("Sicilian Defense", name(opening));
+        assertEquals(2, requests.get());
+        assertTrue(elapsedMillis >= 1_000, "retried after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void givesUpWhenStillRateLimitedAndDoesNotCacheTheFailure() {
+        LichessOpeningExplorer explorer = explorer(Duration.ZERO, 100);
+        for (int i = 0; i < 5; i++) {
+            failures.add(429);
+        }
+
+        // the first request and four retries, then "unknown"
+        assertTrue(explorer.getOpening(key(SICILIAN), SICILIAN).isEmpty());
+        assertEquals(5, requests.get());
+
+        assertEquals("Sicilian Defense", name(explorer.getOpening(key(SICILIAN), SICILIAN)));
+        assertEquals(6, requests.get());
+    }
+
+    @Test
+    void requestsAreSpacedByTheRequestInterval() {
+        LichessOpeningExplorer explorer = explorer(Duration.ofMillis(150), 100);
+
+        long start = System.nanoTime();
+        explorer.getOpening(key(SICILIAN), SICILIAN);
+        explorer.getOpening(key(FRENCH), FRENCH);
+        explorer.getOpening(key(CARO_KANN), CARO_KANN);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(3, requests.get());
+        assertTrue(elapsedMillis >= 300, "three requests in " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,143 @@
+package parser;
+
+import com.github.bhlangonijr.chesslib.Board;
+import com.github.bhlangonijr.chesslib.move.Move;
+import com.github.bhlangonijr.chesslib.move.MoveList;
+import com.github.bhlangonijr.chesslib.pgn.PgnHolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory movetext parser against chesslib: its SAN writer for random games, and its PGN
+ * reader, which the parser replaced, for annotated ones.
+ */
+class PGNParserTest {
+
+    // Morphy's opera game: checks, mate, queenside castling, a knight move told apart by its file
+    private static final String OPERA_GAME = """
+            [Event "Paris"]
+            [White "Morphy"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7
+            8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7
+            14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0
+            """;
+
+    private static final List<String> OPERA_GAME_UCI = List.of(
+            "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5", "f1c4", "g8f6",
+            "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5", "c4b5", "b8d7", "e1c1", "a8d8",
+            "d1d7", "d8d7", "h1d1", "e7e6", "b5d7", "f6d7", "b3b8", "d7b8", "d1d8");
+
+    // en passant, a capturing promotion and castling on both sides, in lichess export style
+    private static final String LICHESS_GAME = """
+            [Event "Rated blitz game"]
+            [Site "https://lichess.org/abcd1234"]
+            [Result "1/2-1/2"]
+
+            1. e4 { [%clk 0:03:00] } 1... Nf6 { [%clk 0:03:00] } 2. e5 { [%clk 0:02:58] } 2... d5 $6
+            3. exd6 { [%clk 0:02:55] } 3... e6 (3... cxd6 4. d4) 4. dxc7 { [%clk 0:02:50] } 4... Bd6 5. cxb8=Q Rxb8 6. Nf3 O-O
+            7. Bc4 b6 8. O-O Bb7 9. d4 Rc8 10. Re1 1/2-1/2
+            """;
+
+    @TempDir
+    Path directory;
+
+    private List<String> readWithPgnHolder(String pgn) throws Exception {
+        Path file = directory.resolve("game.pgn");
+        Files.writeString(file, pgn, StandardCharsets.UTF_8);
+        PgnHolder holder = new PgnHolder(file.toString());
+        holder.loadPgn();
+
+        List<String> uciMoves = new ArrayList<>();
+        for (Move move : holder.getGames().getFirst().getHalfMoves()) {
+            uciMoves.add(move.toString());
+        }
+        return uciMoves;
+    }
+
+    @Test
+    void decodesTheMovesOfAKnownGame() {
+        assertEquals(OPERA_GAME_UCI, PGNParser.convertPgnToUciMoves(OPERA_GAME));
+    }
+
+    @Test
+    void readsAnnotatedGamesLikeThePgnReaderItReplaced() throws Exception {
+        for (String pgn : List.of(OPERA_GAME, LICHESS_GAME)) {
+            assertEquals(readWithPgnHolder(pgn), PGNParser.convertPgnToUciMoves(pgn));
+        }
+    }
+
+    @Test
+    void randomGamesDecodeToTheMovesPlayed() throws Exception {
+        Random random = new Random(42);
+        for (int game = 0; game < 200; game++) {
+            Board board = new Board();
+            MoveList played = new MoveList();
+            for (int ply = 0; ply < 160; ply++) {
+                List<Move> legalMoves = board.legalMoves();
+                if (legalMoves.isEmpty()) break;
+                Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+                board.doMove(move);
+                played.add(move);
+            }
+
+            String[] san = played.toSanArray();
+            StringBuilder pgn = new StringBuilder("[Event \"Random game ").append(game).append("\"]\n\n");
+            List<String> expected = new ArrayList<>(played.size());
+            for (int ply = 0; ply < san.length; ply++) {
+                pgn.append(ply / 2 + 1).append(ply % 2 == 0 ? ". " : "... ").append(san[ply])
+                        .append(" { [%clk 0:01:00] } ");
+                expected.add(played.get(ply).toString());
+            }
+            pgn.append("*\n");
+
+            assertEquals(expected, PGNParser.convertPgnToUciMoves(pgn.toString()), pgn.toString());
+        }
+    }
+
+    @Test
+    void acceptsTheLooserForms() {
+        String pgn = """
+                1.e4 e5 ; the rest of the line is a comment
+                2.Nf3!? Nc6?! 3.Bc4 Bc5 4.0-0 Nf6 {no brace in here} 5.d3 (5.Ng5 (5.Re1) d5) 5...O-O *
+                """;
+
+        assertEquals(List.of("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "e1g1", "g8f6", "d2d3", "e8g8"),
+                PGNParser.convertPgnToUciMoves(pgn));
+    }
+
+    @Test
+    void promotionWithoutEqualsSign() {
+        // a pawn of each side runs through, promoting as it takes a rook
+        String pgn = "1. a4 h5 2. a5 h4 3. a6 h3 4. axb7 hxg2 5. bxa8Q gxh1N *";
+
+        assertEquals(List.of("a2a4", "h7h5", "a4a5", "h5h4", "a5a6", "h4h3", "a6b7", "h3g2", "b7a8q", "g2h1n"),
+                PGNParser.convertPgnToUciMoves(pgn));
+    }
+
+    @Test
+    void stopsAtTheResult() {
+        assertEquals(List.of("e2e4", "e7e5"), PGNParser.convertPgnToUciMoves("1. e4 e5 1-0 2. Nf3"));
+    }
+
+    @Test
+    void illegalOrAmbiguousMovesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PGNParser.convertPgnToUciMoves("1. e5 *"));
+        assertThrows(IllegalArgumentException.class, () -> PGNParser.convertPgnToUciMoves("1. O-O *"));
+        // both knights can reach d2
+        assertThrows(IllegalArgumentException.class,
+                () -> PGNParser.convertPgnToUciMoves("1. d4 d5 2. Nf3 Nf6 3. e3 e6 4. Nd2 *"));
+        assertThrows(IllegalArgumentException.class, () -> PGNParser.convertPgnToUciMoves("1. Nf5 *"));
+    }
+}
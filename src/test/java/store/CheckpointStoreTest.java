@@ -0,0 +1,220 @@
+package store;
+
+import analysis.ErrorAggregates;
+import analysis.TopErrors;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.Fixtures;
+import domain.GameError;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import domain.enums.GamePhase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    // a game with one error per move, of varying severity, category, phase and loss
+    private static AnalysisResult game(int number, int errors) {
+        String gameId = "game" + number;
+        List<GameError> gameErrors = new ArrayList<>();
+        for (int move = 1; move <= errors; move++) {
+            int seed = number * 31 + move;
+            gameErrors.add(Fixtures.error(gameId, move,
+                    ErrorSeverity.values()[seed % ErrorSeverity.values().length],
+                    ErrorCategory.values()[seed % ErrorCategory.values().length],
+                    GamePhase.values()[seed % GamePhase.values().length],
+                    seed % 2 == 0 ? Side.WHITE : Side.BLACK,
+                    50 + seed * 7 % 400));
+        }
+        return new AnalysisResult(gameId, List.of(Fixtures.evaluation(gameId, Side.WHITE, 1, 10)), gameErrors);
+    }
+
+    private static void assertSameTotals(ErrorAggregates expected, ErrorAggregates actual) {
+        assertEquals(expected.cells(), actual.cells());
+        assertEquals(expected.gameCount(), actual.gameCount());
+        assertEquals(expected.analyzedGames(), actual.analyzedGames());
+    }
+
+    private static void assertSameTop(TopErrors expected, TopErrors actual) {
+        assertEquals(expected.worst(), actual.worst());
+        assertEquals(expected.seen(), actual.seen());
+    }
+
+    @Test
+    void summaryGivesTheSameTotalsAsReadingEveryGame() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        ErrorAggregates expected = new ErrorAggregates();
+        TopErrors expectedTop = new TopErrors(3);
+
+        try (CheckpointStore store = CheckpointStore.open(file, 3)) {
+            // past the summary interval, so that the log has lines before and after the last summary
+            for (int i = 0; i < CheckpointStore.SUMMARY_INTERVAL + 20; i++) {
+                AnalysisResult game = game(i, i % 4);
+                store.append(game);
+                expected.add(game);
+                expectedTop.addAll(game.errors());
+            }
+        }
+
+        try (CheckpointStore store = CheckpointStore.open(file, 3)) {
+            assertSameTotals(expected, store.completedAggregates());
+            assertSameTop(expectedTop, store.completedTopErrors());
+        }
+
+        Files.delete(CheckpointStore.summaryFile(file));
+        try (CheckpointStore store = CheckpointStore.open(file, 3)) {
+            assertSameTotals(expected, store.completedAggregates());
+            assertSameTop(expectedTop, store.completedTopErrors());
+            assertEquals(CheckpointStore.SUMMARY_INTERVAL + 20, store.completedCount());
+        }
+    }
+
+    @Test
+    void openingReadsOnlyTheLinesWrittenAfterTheSummary() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            store.append(game(1, 2));
+            store.append(game(2, 3));
+        }
+        long summarized = Files.size(file);
+
+        // games of a run killed before its next summary
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            store.append(game(3, 1));
+        }
+        Files.writeString(CheckpointStore.summaryFile(file), "{\"logBytes\":" + summarized + ",\"completed\":[\"game1\",\"game2\"],"
+                + "\"failed\":{},\"cells\":[],\"gamesWithErrors\":2,\"analyzedGames\":2,\"topK\":" + TopErrors.DEFAULT_K
+                + ",\"topErrors\":[],\"topErrorsSeen\":5}");
+
+        // the games before the summary are taken from it: no errors of theirs are read from the log
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            assertEquals(3, store.completedCount());
+            assertEquals(3, store.completedAggregates().analyzedGames());
+            assertEquals(1, store.completedAggregates().count());
+            assertEquals(6, store.completedTopErrors().seen());
+        }
+    }
+
+    @Test
+    void summaryOfAnotherLogIsIgnored() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            store.append(game(1, 2));
+            store.append(game(2, 3));
+        }
+        // the log replaced by a shorter one, the summary left over
+        try (CheckpointStore store = CheckpointStore.open(directory.resolve("other.ndjson"))) {
+            store.append(game(3, 1));
+        }
+        Files.move(directory.resolve("other.ndjson"), file, StandardCopyOption.REPLACE_EXISTING);
+
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            assertEquals(1, store.completedCount());
+            assertFalse(store.isCompleted("game1"));
+            assertEquals(1, store.completedAggregates().count());
+        }
+    }
+
+    @Test
+    void summaryOfAnotherTopKIsIgnored() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        try (CheckpointStore store = CheckpointStore.open(file, 1)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(game(i, 3));
+            }
+        }
+
+        try (CheckpointStore store = CheckpointStore.open(file, 5)) {
+            TopErrors expected = new TopErrors(5);
+            for (int i = 0; i < 10; i++) {
+                expected.addAll(game(i, 3).errors());
+            }
+            assertSameTop(expected, store.completedTopErrors());
+        }
+    }
+
+    @Test
+    void completedGamesAreKnownAfterReopening() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        List<GameError> errors = new ArrayList<>();
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            for (int i = 1; i <= 3; i++) {
+                store.append(game(i, i));
+                errors.addAll(game(i, i).errors());
+            }
+        }
+
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            assertEquals(3, store.completedCount());
+            assertTrue(store.isCompleted("game1"));
+            assertTrue(store.isCompleted("game3"));
+            assertFalse(store.isCompleted("game4"));
+            assertEquals(6, store.completedAggregates().count());
+            assertEquals(3, store.completedAggregates().analyzedGames());
+            assertEquals(TopErrors.of(errors, TopErrors.DEFAULT_K).worst(), store.completedTopErrors().worst());
+        }
+    }
+
+    @Test
+    void linesKeepTheEvaluationsAndTheTriageErrorsOnlyWhenTheyDiffer() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        AnalysisResult singleTier = game(1, 2);
+        AnalysisResult twoTier = new AnalysisResult("game2", game(2, 3).evaluations(), game(2, 3).errors(),
+                game(2, 1).errors());
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            store.append(singleTier);
+            store.append(twoTier);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        CheckpointStore.StoredGame first = mapper.readValue(lines.get(0), CheckpointStore.StoredGame.class);
+        CheckpointStore.StoredGame second = mapper.readValue(lines.get(1), CheckpointStore.StoredGame.class);
+
+        assertEquals(singleTier.evaluations(), first.evaluations());
+        assertEquals(singleTier.errors(), first.errors());
+        assertNull(first.triageErrors());
+        assertEquals(twoTier.errors(), second.errors());
+        assertEquals(twoTier.triageErrors(), second.triageErrors());
+        assertNull(second.failure());
+    }
+
+    @Test
+    void lineCutShortByACrashIsSkippedAndNotContinued() throws Exception {
+        Path file = directory.resolve("user.ndjson");
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            store.append(game(1, 2));
+            store.append(game(2, 1));
+        }
+        String line = Files.readAllLines(file, StandardCharsets.UTF_8).get(0);
+        // killed halfway through a line, after the last summary
+        Files.writeString(file, line.substring(0, line.length() / 2), StandardOpenOption.APPEND);
+
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            assertEquals(2, store.completedCount());
+            store.append(game(3, 1));
+        }
+        Files.delete(CheckpointStore.summaryFile(file));
+
+        try (CheckpointStore store = CheckpointStore.open(file)) {
+            assertEquals(3, store.completedCount());
+            assertTrue(store.isCompleted("game3"));
+            assertEquals(4, store.completedAggregates().count());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package store;
+
+import com.github.bhlangonijr.chesslib.Side;
+import domain.AnalysisResult;
+import domain.Fixtures;
+import domain.GameError;
+import domain.RawMoveEvaluation;
+import domain.enums.ErrorCategory;
+import domain.enums.ErrorSeverity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import store.ColumnarEvaluations.Column;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEvaluationsTest {
+
+    @TempDir
+    Path directory;
+
+    // every move of the game, with an error on every fourth one
+    private static AnalysisResult game(String gameId, Side color, int moves) {
+        List<RawMoveEvaluation> evaluations = new ArrayList<>();
+        List<GameError> errors = new ArrayList<>();
+        for (int move = 1; move <= moves; move++) {
+            RawMoveEvaluation evaluation = Fixtures.evaluation(gameId, color, move, move * 41 % 500);
+            evaluations.add(evaluation);
+            if (move % 4 == 0) {
+                errors.add(GameError.from(evaluation,
+                        ErrorSeverity.values()[move % ErrorSeverity.values().length],
+                        ErrorCategory.values()[move % ErrorCategory.values().length]));
+            }
+        }
+        return new AnalysisResult(gameId, evaluations, errors);
+    }
+
+    // the evaluation as the file holds it: the relative loss is derived from the loss and the
+    // material, and the FENs are there only on request
+    private static RawMoveEvaluation stored(RawMoveEvaluation e, boolean withFens) {
+        double relativeCpLoss = e.materialBalance() != 0 ? e.cpLoss() / Math.abs(e.materialBalance()) : e.cpLoss();
+        return new RawMoveEvaluation(e.gameId(), e.playerColor(), e.moveNumber(), e.uciMove(), e.sanMove(),
+                e.evalBefore(), e.evalAfter(), e.bestEval(), e.bestMoveUci(), e.forced(), e.legalMovesCount(),
+                e.materialBalance(), e.materialDelta(), withFens ? e.fenBefore() : null, withFens ? e.fenAfter() : null,
+                e.positionKeyBefore(), e.positionKeyAfter(), e.cpLoss(), relativeCpLoss, e.phase(),
+                e.sideToMoveAfter(), e.capture(), e.check(), e.promotion(), e.createsMateThreat(),
+                e.inOpeningTheory(), e.openingName(), e.openingEco());
+    }
+
+    private void assertRoundTrip(List<AnalysisResult> games, boolean withFens) throws IOException {
+        ColumnarEvaluationWriter writer = new ColumnarEvaluationWriter(withFens);
+        games.forEach(writer::add);
+        Path file = directory.resolve("evaluations.bin");
+        writer.write(file);
+
+        try (ColumnarEvaluations columns = ColumnarEvaluations.open(file)) {
+            assertEquals(writer.size(), columns.size());
+            assertEquals(withFens, columns.hasFens());
+
+            int row = 0;
+            for (AnalysisResult game : games) {
+                for (RawMoveEvaluation evaluation : game.evaluations()) {
+                    assertEquals(stored(evaluation, withFens), columns.evaluation(row));
+
+                    GameError error = game.errors().stream()
+                            .filter(e -> e.moveNumber() == evaluation.moveNumber())
+                            .findFirst().orElse(null);
+                    GameError expected = error == null ? null
+                            : GameError.from(stored(evaluation, withFens), error.severity(), error.category());
+                    assertEquals(expected, columns.error(row));
+                    row++;
+                }
+            }
+            assertEquals(columns.size(), row);
+        }
+    }
+
+    @Test
+    void rowsReadBackAsWrittenWithFens() throws Exception {
+        assertRoundTrip(List.of(game("abcd1234", Side.WHITE, 40), game("efgh5678", Side.BLACK, 33)), true);
+    }
+
+    @Test
+    void rowsReadBackAsWrittenWithoutFens() throws Exception {
+        assertRoundTrip(List.of(game("abcd1234", Side.BLACK, 40), game("efgh5678", Side.WHITE, 33)), false);
+    }
+
+    @Test
+    void columnsGrowPastTheirInitialSize() throws Exception {
+        List<AnalysisResult> games = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            games.add(game("game" + i, i % 2 == 0 ? Side.WHITE : Side.BLACK, 60));
+        }
+        assertRoundTrip(games, true);
+    }
+
+    @Test
+    void columnScansSeeEveryRowInOrder() throws Exception {
+        AnalysisResult game = game("abcd1234", Side.WHITE, 25);
+        ColumnarEvaluationWriter writer = new ColumnarEvaluationWriter(false);
+        writer.add(game);
+        Path file = directory.resolve("evaluations.bin");
+        writer.write(file);
+
+        try (ColumnarEvaluations columns = ColumnarEvaluations.open(file)) {
+            IntBuffer cpLoss = columns.cpLossColumn();
+            LongBuffer keys = columns.longColumn(Column.KEY_BEFORE);
+            assertEquals(25, cpLoss.remaining());
+            for (RawMoveEvaluation evaluation : game.evaluations()) {
+                assertEquals((int) evaluation.cpLoss(), cpLoss.get());
+                assertEquals(evaluation.positionKeyBefore(), keys.get());
+            }
+            assertEquals(game.evaluations().get(3).moveNumber(), columns.getShort(Column.MOVE_NUMBER, 3));
+            assertThrows(IllegalArgumentException.class, () -> columns.intColumn(Column.KEY_AFTER));
+            assertThrows(IndexOutOfBoundsException.class, () -> columns.getInt(Column.CP_LOSS, 25));
+        }
+    }
+
+    @Test
+    void emptyFileReadsBackEmpty() throws Exception {
+        Path file = directory.resolve("evaluations.bin");
+        new ColumnarEvaluationWriter(true).write(file);
+
+        try (ColumnarEvaluations columns = ColumnarEvaluations.open(file)) {
+            assertEquals(0, columns.size());
+            assertEquals(0, columns.cpLossColumn().remaining());
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws Exception {
+        Path file = directory.resolve("evaluations.bin");
+        Files.writeString(file, "{\"gameId\":\"abcd1234\",\"evaluations\":[]}");
+
+        assertThrows(IOException.class, () -> ColumnarEvaluations.open(file));
+    }
+}
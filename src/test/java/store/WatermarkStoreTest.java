@@ -0,0 +1,67 @@
+package store;
+
+import domain.AnalysisResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatermarkStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static AnalysisResult completed(String gameId) {
+        return new AnalysisResult(gameId, List.of(), List.of());
+    }
+
+    @Test
+    void advancesPastGamesRecordedAsFailed() throws Exception {
+        Path watermarkFile = directory.resolve("watermarks.json");
+        Map<String, Long> fetched = Map.of("g1", 1_000L, "g2", 2_000L, "g3", 3_000L, "g4", 4_000L);
+
+        try (CheckpointStore checkpoints = CheckpointStore.open(directory.resolve("user.ndjson"))) {
+            checkpoints.append(completed("g1"));
+            // a chess960 game the decoder rejects
+            checkpoints.markFailed("g2", "decode: Illegal castling: O-O");
+            checkpoints.append(completed("g3"));
+            // g4 was still in flight when the run stopped
+
+            WatermarkStore watermarks = WatermarkStore.open(watermarkFile);
+            assertEquals(new WatermarkStore.Watermark(3_000L, "g3"),
+                    watermarks.advance("User", fetched, checkpoints::isTerminal).orElseThrow());
+        }
+
+        try (CheckpointStore checkpoints = CheckpointStore.open(directory.resolve("user.ndjson"))) {
+            assertTrue(checkpoints.isTerminal("g2"));
+            assertFalse(checkpoints.isCompleted("g2"));
+            assertFalse(checkpoints.isTerminal("g4"));
+            assertEquals(2, checkpoints.completedCount());
+            assertEquals(1, checkpoints.failedCount());
+        }
+        assertEquals(new WatermarkStore.Watermark(3_000L, "g3"),
+                WatermarkStore.open(watermarkFile).get("user").orElseThrow());
+    }
+
+    @Test
+    void stopsAtTheFirstGameNeitherAnalyzedNorFailed() throws Exception {
+        WatermarkStore watermarks = WatermarkStore.open(directory.resolve("watermarks.json"));
+        Map<String, Long> fetched = Map.of("g1", 1_000L, "g2", 2_000L, "g3", 3_000L);
+
+        assertEquals(new WatermarkStore.Watermark(1_000L, "g1"),
+                watermarks.advance("user", fetched, gameId -> !gameId.equals("g2")).orElseThrow());
+        assertEquals(new WatermarkStore.Watermark(1_000L, "g1"), watermarks.get("user").orElseThrow());
+    }
+
+    @Test
+    void noWatermarkUntilTheOldestGameIsTerminal() throws Exception {
+        WatermarkStore watermarks = WatermarkStore.open(directory.resolve("watermarks.json"));
+
+        assertTrue(watermarks.advance("user", Map.of("g1", 1_000L, "g2", 2_000L), gameId -> gameId.equals("g2")).isEmpty());
+        assertTrue(watermarks.get("user").isEmpty());
+    }
+}